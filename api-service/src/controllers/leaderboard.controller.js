@@ -1,135 +1,55 @@
 import { asyncHandler } from "../utils/asyncHandler.js";
 import { ApiResponse } from "../utils/ApiResponse.js";
-import { Submission } from "../models/submission.model.js";
-import { User } from "../models/user.model.js";
+import { LeaderboardStat } from "../models/leaderboardStat.model.js";
+
+// ISO-8601 week in UTC, matching the buckets written by the worker (e.g. "2026-W42")
+const isoWeekBucket = (date) => {
+  const d = new Date(Date.UTC(date.getUTCFullYear(), date.getUTCMonth(), date.getUTCDate()));
+  const day = d.getUTCDay() || 7;
+  d.setUTCDate(d.getUTCDate() + 4 - day);
+  const yearStart = new Date(Date.UTC(d.getUTCFullYear(), 0, 1));
+  const week = Math.ceil(((d - yearStart) / 86400000 + 1) / 7);
+  return `${d.getUTCFullYear()}-W${String(week).padStart(2, "0")}`;
+};
+
+const monthBucket = (date) =>
+  `${date.getUTCFullYear()}-${String(date.getUTCMonth() + 1).padStart(2, "0")}`;
 
 const getLeaderboard = asyncHandler(async (req, res) => {
   const { period = 'all-time' } = req.query;
 
-  // Calculate date filter based on period
-  let dateFilter = {};
+  // Resolve the current window for the requested period
   const now = new Date();
+  let filter = { period: "all-time", bucket: "all" };
   
   if (period === 'weekly') {
-    const weekAgo = new Date(now.getTime() - 7 * 24 * 60 * 60 * 1000);
-    dateFilter = { createdAt: { $gte: weekAgo } };
+    filter = { period: "weekly", bucket: isoWeekBucket(now) };
   } else if (period === 'monthly') {
-    const monthAgo = new Date(now.getFullYear(), now.getMonth() - 1, now.getDate());
-    dateFilter = { createdAt: { $gte: monthAgo } };
+    filter = { period: "monthly", bucket: monthBucket(now) };
   }
 
-  // Aggregate user statistics
-  const leaderboard = await Submission.aggregate([
-    { $match: { ...dateFilter, status: "Accepted" } },
-    {
-      $lookup: {
-        from: "problems",
-        localField: "problem_id",
-        foreignField: "_id",
-        as: "problem"
-      }
-    },
-    { $unwind: "$problem" },
-    {
-      $group: {
-        _id: {
-          user_id: "$user_id",
-          problem_id: "$problem_id",
-          difficulty: "$problem.difficulty"
-        }
-      }
-    },
-    {
-      $group: {
-        _id: "$_id.user_id",
-        easy: {
-          $sum: {
-            $cond: [{ $eq: ["$_id.difficulty", "Easy"] }, 1, 0]
-          }
-        },
-        medium: {
-          $sum: {
-            $cond: [{ $eq: ["$_id.difficulty", "Medium"] }, 1, 0]
-          }
-        },
-        hard: {
-          $sum: {
-            $cond: [{ $eq: ["$_id.difficulty", "Hard"] }, 1, 0]
-          }
-        }
-      }
-    },
-    {
-      $project: {
-        user_id: "$_id",
-        easy: 1,
-        medium: 1,
-        hard: 1,
-        problems_solved: { $add: ["$easy", "$medium", "$hard"] },
-        score: {
-          $add: [
-            { $multiply: ["$easy", 1] },
-            { $multiply: ["$medium", 3] },
-            { $multiply: ["$hard", 5] }
-          ]
-        }
-      }
-    },
-    {
-      $lookup: {
-        from: "users",
-        localField: "user_id",
-        foreignField: "_id",
-        as: "user"
-      }
-    },
-    { $unwind: "$user" },
-    {
-      $lookup: {
-        from: "submissions",
-        let: { userId: "$user_id" },
-        pipeline: [
-          { $match: { $expr: { $eq: ["$user_id", "$$userId"] } } },
-          {
-            $group: {
-              _id: null,
-              total: { $sum: 1 },
-              accepted: {
-                $sum: { $cond: [{ $eq: ["$status", "Accepted"] }, 1, 0] }
-              }
-            }
-          }
-        ],
-        as: "submission_stats"
-      }
-    },
-    { $unwind: { path: "$submission_stats", preserveNullAndEmptyArrays: true } },
-    {
-      $project: {
-        _id: "$user._id",
-        username: "$user.username",
-        easy: 1,
-        medium: 1,
-        hard: 1,
-        problems_solved: 1,
-        score: 1,
-        acceptance_rate: {
-          $cond: {
-            if: { $gt: ["$submission_stats.total", 0] },
-            then: {
-              $multiply: [
-                { $divide: ["$submission_stats.accepted", "$submission_stats.total"] },
-                100
-              ]
-            },
-            else: 0
-          }
-        }
-      }
-    },
-    { $sort: { score: -1, problems_solved: -1 } },
-    { $limit: 100 }
-  ]);
+  // Read the stats materialized by the worker
+  const stats = await LeaderboardStat.find(filter)
+    .sort({ score: -1, problems_solved: -1 })
+    .limit(100)
+    .select("-solved")
+    .populate("user_id", "username")
+    .lean();
+
+  const leaderboard = stats
+    .filter((entry) => entry.user_id)
+    .map((entry) => ({
+      _id: entry.user_id._id,
+      username: entry.user_id.username,
+      easy: entry.easy,
+      medium: entry.medium,
+      hard: entry.hard,
+      problems_solved: entry.problems_solved,
+      score: entry.score,
+      acceptance_rate: entry.total_submissions > 0
+        ? (entry.accepted_submissions / entry.total_submissions) * 100
+        : 0
+    }));
 
   return res.status(200).json(
     new ApiResponse(200, leaderboard, "Leaderboard fetched successfully")
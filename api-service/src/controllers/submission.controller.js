@@ -2,6 +2,7 @@ import { asyncHandler } from "../utils/asyncHandler.js";
 import { ApiError } from "../utils/ApiError.js";
 import { ApiResponse } from "../utils/ApiResponse.js";
 import { Submission } from "../models/submission.model.js";
+import { SubmissionDetails } from "../models/submissionDetails.model.js";
 import { Problem } from "../models/problem.model.js";
 import { publishToQueue } from "../rabbitmq/index.js";
 import { SUBMISSION_QUEUE, TEST_QUEUE } from "../constants.js";
@@ -131,7 +132,7 @@ const getSubmissionStatus = asyncHandler(async (req, res) => {
   const { submission_id } = req.params;
 
   const submission = await Submission.findById(submission_id)
-    .select("status verdict execution_time memory_used test_cases_passed total_test_cases judged_at")
+    .select("status verdict execution_time memory_used test_cases_passed total_test_cases tests_executed first_failed_case judged_at")
     .lean();
 
   if (!submission) {
@@ -158,6 +159,7 @@ const getMySubmissions = asyncHandler(async (req, res) => {
 
   const [submissions, total] = await Promise.all([
     Submission.find(query)
+      .select("-test_results") // legacy inline results
       .populate("problem_id", "title slug difficulty")
       .sort({ createdAt: -1 })
       .skip(skip)
@@ -181,9 +183,37 @@ const getMySubmissions = asyncHandler(async (req, res) => {
     );
 });
 
+// Per-test-case results are stored compressed outside the submissions collection
+// and only loaded when a user opens a single submission
+const getSubmissionDetails = asyncHandler(async (req, res) => {
+  const { submission_id } = req.params;
+
+  const submission = await Submission.findById(submission_id)
+    .select("user_id test_results")
+    .lean();
+
+  if (!submission) {
+    throw new ApiError(404, "Submission not found");
+  }
+
+  if (submission.user_id.toString() !== req.user._id.toString()) {
+    throw new ApiError(403, "Not allowed to view this submission");
+  }
+
+  const details = await SubmissionDetails.findById(submission_id);
+  const test_results = details ? details.decode() : (submission.test_results || []);
+
+  return res
+    .status(200)
+    .json(
+      new ApiResponse(200, { submission_id, test_results }, "Submission details fetched")
+    );
+});
+
 export { 
   createSubmission, 
   testSubmission,
   getSubmissionStatus, 
+  getSubmissionDetails,
   getMySubmissions 
 };
@@ -0,0 +1,25 @@
+import mongoose, { Schema } from "mongoose";
+
+// Materialized by the worker whenever a verdict is persisted
+const leaderboardStatSchema = new Schema(
+  {
+    _id: { type: String }, // `${user_id}:${period}:${bucket}`
+    user_id: { type: Schema.Types.ObjectId, ref: "User", required: true },
+    period: { type: String, enum: ["all-time", "weekly", "monthly"], required: true },
+    bucket: { type: String, required: true }, // "all", "2026-W42", "2026-10"
+    easy: { type: Number, default: 0 },
+    medium: { type: Number, default: 0 },
+    hard: { type: Number, default: 0 },
+    problems_solved: { type: Number, default: 0 },
+    score: { type: Number, default: 0 },
+    solved: [{ type: String }],
+    total_submissions: { type: Number, default: 0 },
+    accepted_submissions: { type: Number, default: 0 },
+  },
+  { collection: "leaderboard_stats", versionKey: false }
+);
+
+// Leaderboard reads are a single index scan per window
+leaderboardStatSchema.index({ period: 1, bucket: 1, score: -1, problems_solved: -1 });
+
+export const LeaderboardStat = mongoose.model("LeaderboardStat", leaderboardStatSchema);
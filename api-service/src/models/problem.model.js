@@ -12,6 +12,12 @@ const testCaseSchema = new Schema({
   output: { type: String, required: true },
 });
 
+// Checker program speaking the worker's framed stdin/stdout protocol (C++ only)
+const checkerSchema = new Schema({
+  language: { type: String, enum: ["cpp"], default: "cpp" },
+  source_code: { type: String, required: true },
+}, { _id: false });
+
 const problemSchema = new Schema(
   {
     title: { type: String, required: true, unique: true },
@@ -30,6 +36,11 @@ const problemSchema = new Schema(
       required: true,
       select: false, // Hide from API responses
     },
+    // Optional special judge for problems with many valid answers
+    checker: {
+      type: checkerSchema,
+      select: false, // Hide from API responses
+    },
     tags: [{ type: String }], // e.g., ["arrays", "dynamic-programming"]
     total_submissions: { type: Number, default: 0 },
     accepted_submissions: { type: Number, default: 0 },
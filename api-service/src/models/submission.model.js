@@ -1,14 +1,5 @@
 import mongoose, { Schema } from "mongoose";
 
-const testResultSchema = new Schema({
-  test_case_number: { type: Number },
-  status: { type: String },
-  input: { type: String },
-  expected_output: { type: String },
-  actual_output: { type: String },
-  execution_time_ms: { type: Number },
-}, { _id: false });
-
 const submissionSchema = new Schema(
   {
     problem_id: { type: Schema.Types.ObjectId, ref: "Problem", required: true, index: true },
@@ -40,7 +31,9 @@ const submissionSchema = new Schema(
     memory_used: { type: Number }, // KB
     test_cases_passed: { type: Number, default: 0 },
     total_test_cases: { type: Number, default: 0 },
-    test_results: [testResultSchema],
+    // Compact summary; full per-case results live in submission_details
+    tests_executed: { type: Number, default: 0 },
+    first_failed_case: { type: Number },
     judged_at: { type: Date },
     is_test_run: { type: Boolean, default: false }, // For "Run" vs "Submit"
   },
@@ -50,6 +43,8 @@ const submissionSchema = new Schema(
 // Index for efficient queries
 submissionSchema.index({ user_id: 1, createdAt: -1 });
 submissionSchema.index({ problem_id: 1, status: 1 });
+// Rejudges page through a problem's submissions in _id order
+submissionSchema.index({ problem_id: 1, _id: 1 });
 
 // Virtual for pass percentage
 submissionSchema.virtual('pass_percentage').get(function() {
@@ -0,0 +1,23 @@
+import mongoose, { Schema } from "mongoose";
+import { gunzipSync } from "zlib";
+
+// Written by the worker: gzip-compressed JSON array of per-test-case results
+const submissionDetailsSchema = new Schema(
+  {
+    _id: { type: Schema.Types.ObjectId }, // submission id
+    encoding: { type: String },
+    case_count: { type: Number },
+    data: { type: Buffer },
+    created_at: { type: Date },
+  },
+  { collection: "submission_details", versionKey: false }
+);
+
+submissionDetailsSchema.methods.decode = function () {
+  if (this.encoding !== "gzip+json") {
+    throw new Error(`Unsupported details encoding: ${this.encoding}`);
+  }
+  return JSON.parse(gunzipSync(this.data).toString("utf8"));
+};
+
+export const SubmissionDetails = mongoose.model("SubmissionDetails", submissionDetailsSchema);
@@ -4,6 +4,7 @@ import {
   testSubmission,
   getMySubmissions,
   getSubmissionStatus,
+  getSubmissionDetails,
 } from "../controllers/submission.controller.js";
 import { verifyJWT } from "../middlewares/auth.middleware.js";
 import { submissionRateLimiter } from "../middlewares/rateLimiter.middleware.js";
@@ -26,4 +27,7 @@ router.route("/my-submissions")
 router.route("/:submission_id")
   .get(getSubmissionStatus);
 
+router.route("/:submission_id/details")
+  .get(getSubmissionDetails);
+
 export default router;
@@ -0,0 +1,19 @@
+#!/bin/bash
+
+# Long-lived special judge checker.
+# Compiles /workspace/checker.cpp unless another process of the pool already did, then serves
+# check requests over stdin/stdout until stdin is closed. Compiler output goes to stderr so
+# stdout only carries protocol lines.
+
+if [ ! -x checker ]; then
+    # Renamed into place so a process never sees a half-written binary
+    g++ -O2 -std=c++17 -o checker.tmp checker.cpp 1>&2
+
+    if [ $? -ne 0 ]; then
+        exit 1
+    fi
+    mv checker.tmp checker
+fi
+
+echo "READY"
+exec ./checker
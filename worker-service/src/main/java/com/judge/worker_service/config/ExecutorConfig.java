@@ -4,6 +4,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 import java.util.concurrent.Executor;
 
@@ -16,6 +17,15 @@ public class ExecutorConfig {
     @Value("${execution.queue.capacity:100}")
     private int queueCapacity;
 
+    @Value("${docker.supervisor.threads:2}")
+    private int supervisorThreads;
+
+    @Value("${docker.io.threads:4}")
+    private int dockerThreads;
+
+    @Value("${rejudge.concurrency:2}")
+    private int rejudgeConcurrency;
+
     @Bean(name = "judgingExecutor")
     public Executor judgingExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
@@ -28,4 +38,103 @@ public class ExecutorConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * Runs bulk rejudge jobs one at a time; further requests wait in the queue.
+     */
+    @Bean(name = "rejudgeExecutor")
+    public Executor rejudgeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(10);
+        executor.setThreadNamePrefix("rejudge-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Single thread for one-off data backfills run at startup.
+     */
+    @Bean(name = "backfillExecutor")
+    public Executor backfillExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setThreadNamePrefix("backfill-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Small pool that judges the distinct sources of a rejudge. Live traffic keeps priority because
+     * RejudgeService holds back while queued judgements are running, not through thread priority.
+     */
+    @Bean(name = "rejudgeWorkerExecutor")
+    public Executor rejudgeWorkerExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(rejudgeConcurrency);
+        executor.setMaxPoolSize(rejudgeConcurrency);
+        executor.setThreadNamePrefix("rejudge-worker-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Small scheduler that supervises all running sandboxes: drives container timeouts
+     * and runs the log collection / cleanup stages once a container has exited.
+     */
+    @Bean(name = "sandboxScheduler")
+    public ThreadPoolTaskScheduler sandboxScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(supervisorThreads);
+        scheduler.setThreadNamePrefix("sandbox-");
+        scheduler.setRemoveOnCancelPolicy(true);
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    /**
+     * Runs the blocking Docker calls of sandboxes (workspace setup, create and start once a slot
+     * is free, kill, remove, workspace delete), so neither judging threads nor the timeouts
+     * driven by the sandbox scheduler wait on a slow daemon.
+     */
+    @Bean(name = "sandboxDockerExecutor")
+    public Executor sandboxDockerExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(dockerThreads);
+        executor.setMaxPoolSize(dockerThreads);
+        executor.setThreadNamePrefix("sandbox-docker-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Single thread for the startup warmup and its retries, so dummy judgements never hold up
+     * the maintenance jobs.
+     */
+    @Bean(name = "warmupScheduler")
+    public ThreadPoolTaskScheduler warmupScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("warmup-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    /**
+     * Scheduler for {@code @Scheduled} maintenance jobs, kept apart from sandbox supervision.
+     */
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(2);
+        scheduler.setThreadNamePrefix("maintenance-");
+        scheduler.initialize();
+        return scheduler;
+    }
 }
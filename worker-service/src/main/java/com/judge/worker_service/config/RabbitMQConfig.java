@@ -24,6 +24,15 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.exchange}")
     private String exchange;
 
+    @Value("${rabbitmq.consumer.max.concurrent:10}")
+    private int maxConsumers;
+
+    @Value("${rabbitmq.consumer.batch.size:8}")
+    private int batchSize;
+
+    @Value("${rabbitmq.consumer.batch.timeout.ms:200}")
+    private long batchTimeoutMs;
+
     @Bean
     public Queue submissionQueue() {
         return QueueBuilder.durable(submissionQueue)
@@ -71,8 +80,32 @@ public class RabbitMQConfig {
         factory.setConnectionFactory(connectionFactory);
         factory.setMessageConverter(messageConverter());
         factory.setConcurrentConsumers(3);
-        factory.setMaxConcurrentConsumers(10);
+        factory.setMaxConcurrentConsumers(maxConsumers);
         factory.setPrefetchCount(1);
         return factory;
     }
+
+    /**
+     * Delivers up to {@code batchSize} raw messages at once, or fewer after {@code batchTimeoutMs}
+     * without a new message. Acknowledgement is manual so every message is acked on its own once
+     * its submission is persisted. The listener returns as soon as the batch is dispatched, so the
+     * prefetch bounds the submissions in flight and every ack lets the next message in; a single
+     * consumer therefore keeps up to {@code batchSize} judgements running, and more would only hold
+     * further messages back from idle workers and from the queue depth the autoscaling signal reads.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchRabbitListenerContainerFactory(
+            ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(batchTimeoutMs);
+        factory.setPrefetchCount(batchSize);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        return factory;
+    }
 }
@@ -0,0 +1,39 @@
+package com.judge.workerservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.UUID;
+
+/**
+ * Identifies this worker process. Used to label sandboxes and claim submissions
+ * so resources left behind by a dead worker can be found and reclaimed.
+ *
+ * <p>Every boot gets a fresh id, even with a configured {@code worker.instance.id} (e.g. a pod
+ * name): a restarted worker must not look like the incarnation whose submissions it has to reap.
+ */
+@Component
+public class WorkerInstance {
+
+    private final String id;
+
+    public WorkerInstance(@Value("${worker.instance.id:}") String configuredId) {
+        String name = configuredId == null || configuredId.isBlank() ? hostName() : configuredId;
+        String instanceId = name + "-" + UUID.randomUUID().toString().substring(0, 8);
+        // Keep the id safe for container labels and workspace directory names
+        this.id = instanceId.replaceAll("[^A-Za-z0-9-]", "-");
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "worker";
+        }
+    }
+}
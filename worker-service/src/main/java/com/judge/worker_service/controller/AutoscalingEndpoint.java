@@ -0,0 +1,29 @@
+package com.judge.workerservice.controller;
+
+import com.judge.workerservice.dto.AutoscalingRecommendation;
+import com.judge.workerservice.service.AutoscalingAdvisor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code /actuator/autoscaling}: recommended worker count and the inputs behind it. The same figure
+ * is exported as the {@code judge.autoscaling.recommended.workers} gauge.
+ */
+@Component
+@Endpoint(id = "autoscaling")
+public class AutoscalingEndpoint {
+
+    private final AutoscalingAdvisor autoscalingAdvisor;
+
+    @Autowired
+    public AutoscalingEndpoint(AutoscalingAdvisor autoscalingAdvisor) {
+        this.autoscalingAdvisor = autoscalingAdvisor;
+    }
+
+    @ReadOperation
+    public AutoscalingRecommendation recommendation() {
+        return autoscalingAdvisor.current();
+    }
+}
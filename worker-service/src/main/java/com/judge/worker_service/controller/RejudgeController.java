@@ -0,0 +1,88 @@
+package com.judge.workerservice.controller;
+
+import com.judge.workerservice.dto.RejudgeProgress;
+import com.judge.workerservice.dto.RejudgeRequest;
+import com.judge.workerservice.service.RejudgeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Internal endpoint (worker port, not exposed through the API gateway) for bulk rejudges.
+ * Every call must carry the shared {@code rejudge.api.token} in the {@value #TOKEN_HEADER} header;
+ * without a configured token the endpoint refuses all requests.
+ */
+@RestController
+@RequestMapping("/rejudge")
+public class RejudgeController {
+
+    public static final String TOKEN_HEADER = "X-Rejudge-Token";
+
+    private final RejudgeService rejudgeService;
+
+    @Value("${rejudge.api.token:}")
+    private String apiToken;
+
+    @Autowired
+    public RejudgeController(RejudgeService rejudgeService) {
+        this.rejudgeService = rejudgeService;
+    }
+
+    @PostMapping
+    public ResponseEntity<RejudgeProgress> start(@RequestHeader(name = TOKEN_HEADER, required = false) String token,
+                                                 @RequestBody RejudgeRequest request) {
+        authorize(token);
+        if (request.problemId() == null || request.problemId().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "problem_id is required");
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(rejudgeService.start(request));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many rejudges queued, retry later");
+        }
+    }
+
+    @GetMapping
+    public List<RejudgeProgress> list(@RequestHeader(name = TOKEN_HEADER, required = false) String token) {
+        authorize(token);
+        return rejudgeService.allProgress();
+    }
+
+    @GetMapping("/{rejudgeId}")
+    public RejudgeProgress progress(@RequestHeader(name = TOKEN_HEADER, required = false) String token,
+                                    @PathVariable String rejudgeId) {
+        authorize(token);
+        return rejudgeService.progress(rejudgeId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Rejudge not found"));
+    }
+
+    @DeleteMapping("/{rejudgeId}")
+    public ResponseEntity<Void> cancel(@RequestHeader(name = TOKEN_HEADER, required = false) String token,
+                                       @PathVariable String rejudgeId) {
+        authorize(token);
+        if (!rejudgeService.cancel(rejudgeId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Rejudge not found");
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    private void authorize(String token) {
+        if (apiToken == null || apiToken.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Rejudge API is disabled, set rejudge.api.token");
+        }
+        if (token == null || !MessageDigest.isEqual(
+                apiToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid rejudge token");
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.judge.workerservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * Special judge shipped with a problem, for problems with more than one valid answer.
+ * Only C++ checkers are supported; see {@code CheckerProcess} for the protocol.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Checker {
+    private String language;
+    
+    @Field("source_code")
+    private String sourceCode;
+}
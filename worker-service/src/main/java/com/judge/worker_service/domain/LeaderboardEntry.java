@@ -0,0 +1,48 @@
+package com.judge.workerservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.util.List;
+
+/**
+ * Materialized per-user statistics for one leaderboard window
+ * (period "all-time", "weekly" or "monthly", bucket e.g. "all", "2026-W42", "2026-10").
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "leaderboard_stats")
+public class LeaderboardEntry {
+    @Id
+    private String id;
+    
+    @Field(name = "user_id", targetType = FieldType.OBJECT_ID)
+    private String userId;
+    
+    private String period;
+    private String bucket;
+    
+    private Integer easy;
+    private Integer medium;
+    private Integer hard;
+    
+    @Field("problems_solved")
+    private Integer problemsSolved;
+    
+    private Integer score;
+    
+    // Problem ids solved within the window, used for first-solve detection
+    private List<String> solved;
+    
+    @Field("total_submissions")
+    private Integer totalSubmissions;
+    
+    @Field("accepted_submissions")
+    private Integer acceptedSubmissions;
+}
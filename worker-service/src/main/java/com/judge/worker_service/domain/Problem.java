@@ -19,9 +19,14 @@ public class Problem {
     
     private String title;
     
+    private String difficulty;
+    
     @Field("hidden_test_cases")
     private List<TestCase> hiddenTestCases;
     
+    // Optional special judge, replaces exact output comparison
+    private Checker checker;
+    
     @Field("time_limit")
     private Integer timeLimit = 5;
     
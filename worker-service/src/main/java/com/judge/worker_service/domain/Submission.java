@@ -6,9 +6,9 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 
 import java.time.LocalDateTime;
-import java.util.List;
 
 @Data
 @NoArgsConstructor
@@ -18,6 +18,20 @@ public class Submission {
     @Id
     private String id;
     
+    @Field(name = "problem_id", targetType = FieldType.OBJECT_ID)
+    private String problemId;
+    
+    @Field(name = "user_id", targetType = FieldType.OBJECT_ID)
+    private String userId;
+    
+    @Field("source_code")
+    private String sourceCode;
+    
+    private String language;
+    
+    @Field("is_test_run")
+    private Boolean testRun;
+    
     private String status;
     private String verdict;
     
@@ -36,6 +50,28 @@ public class Submission {
     @Field("judged_at")
     private LocalDateTime judgedAt;
     
-    @Field("test_results")
-    private List<TestCaseResult> testResults;
+    // Compact test summary, full per-case results live in submission_details
+    @Field("tests_executed")
+    private Integer testsExecuted;
+    
+    @Field("first_failed_case")
+    private Integer firstFailedCase;
+    
+    // Worker instance currently (or last) judging this submission
+    @Field("worker_id")
+    private String workerId;
+    
+    // Set once this submission's verdict has been fully applied to problem and leaderboard stats
+    @Field("stats_recorded")
+    private Boolean statsRecorded;
+    
+    // Whether this submission is currently included in its problem's accepted_submissions
+    @Field("accepted_counted")
+    private Boolean acceptedCounted;
+    
+    @Field("createdAt")
+    private LocalDateTime createdAt;
+    
+    @Field("updatedAt")
+    private LocalDateTime updatedAt;
 }
@@ -0,0 +1,35 @@
+package com.judge.workerservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * Full per-test-case results of a submission, kept out of the hot submissions collection.
+ * {@code data} holds the gzip-compressed JSON array of {@link TestCaseResult}s.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "submission_details")
+public class SubmissionDetails {
+    public static final String ENCODING_GZIP_JSON = "gzip+json";
+
+    @Id
+    private String submissionId;
+    
+    private String encoding;
+    
+    @Field("case_count")
+    private Integer caseCount;
+    
+    private byte[] data;
+    
+    @Field("created_at")
+    private LocalDateTime createdAt;
+}
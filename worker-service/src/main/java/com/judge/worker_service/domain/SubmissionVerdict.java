@@ -0,0 +1,19 @@
+package com.judge.workerservice.domain;
+
+import java.util.List;
+
+/**
+ * Outcome of judging one source against a problem's hidden test cases,
+ * independent of the submission(s) it gets applied to.
+ */
+public record SubmissionVerdict(
+    String status,
+    String verdict,
+    int testCasesPassed,
+    int totalTestCases,
+    Integer firstFailedCase,
+    long maxExecutionTimeMs,
+    long maxMemoryUsedKb,
+    List<TestCaseResult> testResults,
+    long totalExecutionTimeMs
+) {}
@@ -1,10 +1,13 @@
 package com.judge.workerservice.domain;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 public record TestCaseResult(
-    int testCaseNumber,
-    String status,
-    String input,
-    String expectedOutput,
-    String actualOutput,
-    Long executionTimeMs
+    @JsonProperty("test_case_number") int testCaseNumber,
+    @JsonProperty("status") String status,
+    @JsonProperty("input") String input,
+    @JsonProperty("expected_output") String expectedOutput,
+    @JsonProperty("actual_output") String actualOutput,
+    @JsonProperty("execution_time_ms") Long executionTimeMs,
+    @JsonProperty("feedback") String feedback
 ) {}
@@ -0,0 +1,41 @@
+package com.judge.workerservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Historical per-test-case execution statistics for one version of a problem's test set.
+ * The id is {@code <problemId>:<test set digest>}, so edited tests start from fresh statistics.
+ * Maps are keyed by the original (0-based) test case index.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "test_case_stats")
+public class TestCaseStats {
+    @Id
+    private String id;
+
+    @Field("problem_id")
+    private String problemId;
+
+    @Field("test_count")
+    private Integer testCount;
+
+    @Field("judged_submissions")
+    private Long judgedSubmissions = 0L;
+
+    private Map<String, Long> runs = new HashMap<>();
+
+    private Map<String, Long> failures = new HashMap<>();
+
+    @Field("total_time_ms")
+    private Map<String, Long> totalTimeMs = new HashMap<>();
+}
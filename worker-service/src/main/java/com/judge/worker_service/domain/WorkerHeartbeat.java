@@ -0,0 +1,28 @@
+package com.judge.workerservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "worker_heartbeats")
+public class WorkerHeartbeat {
+    @Id
+    private String id;
+    
+    private String host;
+    
+    @Field("last_seen")
+    private LocalDateTime lastSeen;
+
+    // Queue messages the worker held unacked at lastSeen
+    @Field("in_flight")
+    private int inFlight;
+}
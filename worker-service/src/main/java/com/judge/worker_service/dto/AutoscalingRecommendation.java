@@ -0,0 +1,20 @@
+package com.judge.workerservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public record AutoscalingRecommendation(
+    @JsonProperty("recommended_workers") int recommendedWorkers,
+    @JsonProperty("live_workers") int liveWorkers,
+    @JsonProperty("queue_depth") Map<String, Long> queueDepth,
+    @JsonProperty("in_flight") long inFlight,
+    @JsonProperty("arrival_rate_per_second") double arrivalRatePerSecond,
+    @JsonProperty("mean_service_time_ms") double meanServiceTimeMs,
+    @JsonProperty("service_time_ms_by_language") Map<String, Double> serviceTimeMsByLanguage,
+    @JsonProperty("slots_per_worker") int slotsPerWorker,
+    @JsonProperty("target_wait_p95_ms") long targetWaitP95Ms,
+    @JsonProperty("computed_at") LocalDateTime computedAt,
+    @JsonProperty("error") String error
+) {}
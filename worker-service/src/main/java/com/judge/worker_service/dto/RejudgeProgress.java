@@ -0,0 +1,19 @@
+package com.judge.workerservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+
+public record RejudgeProgress(
+    @JsonProperty("rejudge_id") String rejudgeId,
+    @JsonProperty("problem_id") String problemId,
+    @JsonProperty("state") String state,
+    @JsonProperty("submissions_scanned") long submissionsScanned,
+    @JsonProperty("submissions_rejudged") long submissionsRejudged,
+    @JsonProperty("distinct_sources_judged") long distinctSourcesJudged,
+    @JsonProperty("verdicts_changed") long verdictsChanged,
+    @JsonProperty("failures") long failures,
+    @JsonProperty("started_at") LocalDateTime startedAt,
+    @JsonProperty("finished_at") LocalDateTime finishedAt,
+    @JsonProperty("error") String error
+) {}
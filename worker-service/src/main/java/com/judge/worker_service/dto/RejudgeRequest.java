@@ -0,0 +1,17 @@
+package com.judge.workerservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Rejudge every submission of a problem, optionally narrowed down by the filters.
+ */
+public record RejudgeRequest(
+    @JsonProperty("problem_id") String problemId,
+    @JsonProperty("statuses") List<String> statuses,
+    @JsonProperty("languages") List<String> languages,
+    @JsonProperty("submitted_after") LocalDateTime submittedAfter,
+    @JsonProperty("submitted_before") LocalDateTime submittedBefore
+) {}
@@ -0,0 +1,9 @@
+package com.judge.workerservice.repository;
+
+import com.judge.workerservice.domain.SubmissionDetails;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SubmissionDetailsRepository extends MongoRepository<SubmissionDetails, String> {
+}
@@ -2,8 +2,15 @@ package com.judge.workerservice.repository;
 
 import com.judge.workerservice.domain.Submission;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface SubmissionRepository extends MongoRepository<Submission, String> {
+
+    @Query("{ 'status': ?0, 'worker_id': { $exists: true, $nin: ?1 } }")
+    List<Submission> findByStatusClaimedByOtherWorkers(String status, Collection<String> liveWorkerIds);
 }
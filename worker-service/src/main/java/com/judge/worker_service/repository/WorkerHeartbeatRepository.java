@@ -0,0 +1,14 @@
+package com.judge.workerservice.repository;
+
+import com.judge.workerservice.domain.WorkerHeartbeat;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface WorkerHeartbeatRepository extends MongoRepository<WorkerHeartbeat, String> {
+
+    List<WorkerHeartbeat> findByLastSeenAfter(LocalDateTime since);
+}
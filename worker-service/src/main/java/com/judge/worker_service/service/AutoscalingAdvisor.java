@@ -0,0 +1,186 @@
+package com.judge.workerservice.service;
+
+import com.judge.workerservice.domain.WorkerHeartbeat;
+import com.judge.workerservice.dto.AutoscalingRecommendation;
+import com.judge.workerservice.repository.WorkerHeartbeatRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recommends how many workers the cluster needs, from the backlog of the judge queues (ready
+ * messages plus those live workers hold unacked), this worker's recent per-language service time
+ * and how many jobs it runs at once, so that queued jobs start within the target p95 wait. Service time and
+ * slots are local, so workers on different hardware or with a different job mix may disagree;
+ * a scaler should read one worker or take the maximum across them.
+ */
+@Service
+public class AutoscalingAdvisor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AutoscalingAdvisor.class);
+
+    private final QueueDepthProbe queueDepthProbe;
+    private final ServiceTimeTracker serviceTimeTracker;
+    private final CpuSlotScheduler slotScheduler;
+    private final WorkerHeartbeatRepository heartbeatRepository;
+    private final InFlightDeliveries inFlightDeliveries;
+
+    private final AtomicInteger recommendedWorkers = new AtomicInteger();
+    private volatile AutoscalingRecommendation current;
+    private long lastDepth = -1;
+    private long lastSampledAt;
+
+    @Value("${rabbitmq.queue.submission}")
+    private String submissionQueue;
+
+    @Value("${rabbitmq.queue.test}")
+    private String testQueue;
+
+    @Value("${autoscaling.target.wait.p95.ms:10000}")
+    private long targetWaitMs;
+
+    @Value("${autoscaling.target.utilization:0.75}")
+    private double targetUtilization;
+
+    @Value("${autoscaling.default.service.time.ms:2000}")
+    private long defaultServiceTimeMs;
+
+    @Value("${autoscaling.min.workers:1}")
+    private int minWorkers;
+
+    @Value("${autoscaling.max.workers:20}")
+    private int maxWorkers;
+
+    @Value("${worker.heartbeat.timeout.ms:60000}")
+    private long heartbeatTimeoutMs;
+
+    @Value("${rabbitmq.consumer.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${rabbitmq.consumer.batch.size:8}")
+    private int batchSize;
+
+    @Value("${rabbitmq.consumer.max.concurrent:10}")
+    private int maxConsumers;
+
+    @Value("${execution.max.concurrent:10}")
+    private int maxConcurrent;
+
+    @Autowired
+    public AutoscalingAdvisor(QueueDepthProbe queueDepthProbe,
+                              ServiceTimeTracker serviceTimeTracker,
+                              CpuSlotScheduler slotScheduler,
+                              WorkerHeartbeatRepository heartbeatRepository,
+                              InFlightDeliveries inFlightDeliveries,
+                              MeterRegistry meterRegistry) {
+        this.queueDepthProbe = queueDepthProbe;
+        this.serviceTimeTracker = serviceTimeTracker;
+        this.slotScheduler = slotScheduler;
+        this.heartbeatRepository = heartbeatRepository;
+        this.inFlightDeliveries = inFlightDeliveries;
+
+        meterRegistry.gauge("judge.autoscaling.recommended.workers", recommendedWorkers);
+    }
+
+    public AutoscalingRecommendation current() {
+        AutoscalingRecommendation recommendation = current;
+        return recommendation != null ? recommendation : refresh();
+    }
+
+    @Scheduled(fixedRateString = "${autoscaling.refresh.ms:10000}")
+    public synchronized AutoscalingRecommendation refresh() {
+        List<WorkerHeartbeat> heartbeats = liveHeartbeats();
+        int liveWorkers = Math.max(1, heartbeats.size());
+        // Delivered but unacked messages are no longer counted as ready by the broker
+        long inFlight = heartbeats.isEmpty()
+                ? inFlightDeliveries.count()
+                : heartbeats.stream().mapToLong(WorkerHeartbeat::getInFlight).sum();
+        int slots = concurrency();
+
+        ServiceTimeTracker.Snapshot serviceTime = serviceTimeTracker.snapshot();
+        double serviceSeconds = (serviceTime.samples() > 0 ? serviceTime.meanServiceTimeMs() : defaultServiceTimeMs) / 1000.0;
+
+        Map<String, Long> depths = new LinkedHashMap<>();
+        try {
+            depths.put(submissionQueue, queueDepthProbe.depth(submissionQueue));
+            depths.put(testQueue, queueDepthProbe.depth(testQueue));
+        } catch (Exception e) {
+            // Without the backlog any figure would be a guess; keep the previous one
+            LOGGER.warn("Failed to read queue depth: {}", e.getMessage());
+            AutoscalingRecommendation stale = new AutoscalingRecommendation(
+                    Math.max(recommendedWorkers.get(), minWorkers), liveWorkers, depths, inFlight, 0, serviceSeconds * 1000,
+                    serviceTime.meanByLanguageMs(), slots, targetWaitMs, LocalDateTime.now(),
+                    "Queue depth unavailable: " + e.getMessage());
+            current = stale;
+            return stale;
+        }
+        long depth = depths.values().stream().mapToLong(Long::longValue).sum() + inFlight;
+
+        // Arrivals = what the cluster completes plus whatever the backlog grew by
+        long now = System.currentTimeMillis();
+        double growthRate = 0;
+        if (lastDepth >= 0 && now > lastSampledAt) {
+            growthRate = (depth - lastDepth) * 1000.0 / (now - lastSampledAt);
+        }
+        lastDepth = depth;
+        lastSampledAt = now;
+        double arrivalRate = Math.max(0, serviceTime.completionRate() * liveWorkers + growthRate);
+
+        int recommended = recommend(depth, arrivalRate, serviceSeconds, slots,
+                targetWaitMs / 1000.0, targetUtilization, minWorkers, maxWorkers);
+        recommendedWorkers.set(recommended);
+
+        AutoscalingRecommendation recommendation = new AutoscalingRecommendation(
+                recommended, liveWorkers, depths, inFlight, arrivalRate, serviceSeconds * 1000,
+                serviceTime.meanByLanguageMs(), slots, targetWaitMs, LocalDateTime.now(), null);
+        current = recommendation;
+        return recommendation;
+    }
+
+    /**
+     * Workers needed so that (a) the arrival rate keeps them below the target utilization and
+     * (b) the current backlog drains within the target wait. The last job of the backlog waits
+     * longest, so bounding its wait bounds the p95.
+     */
+    static int recommend(long depth, double arrivalRate, double serviceSeconds, int slotsPerWorker,
+                         double targetWaitSeconds, double targetUtilization, int minWorkers, int maxWorkers) {
+        double steadyState = arrivalRate * serviceSeconds / (slotsPerWorker * targetUtilization);
+        double backlog = depth * serviceSeconds / (slotsPerWorker * targetWaitSeconds);
+        int workers = (int) Math.ceil(Math.max(steadyState, backlog));
+        return Math.max(minWorkers, Math.min(maxWorkers, workers));
+    }
+
+    /**
+     * Jobs this worker runs at once: its CPU slots, unless its consumers never hand it that many
+     * (one job per listener consumer, or one batch in batch mode, plus the test queue's consumers)
+     * or execution.max.concurrent allows fewer.
+     */
+    private int concurrency() {
+        int consumers = (batchEnabled ? batchSize : maxConsumers) + maxConsumers;
+        return Math.max(1, Math.min(slotScheduler.totalSlots(), Math.min(consumers, maxConcurrent)));
+    }
+
+    /**
+     * Heartbeats of live workers; empty if they cannot be read, which counts as this worker alone.
+     */
+    private List<WorkerHeartbeat> liveHeartbeats() {
+        try {
+            LocalDateTime since = LocalDateTime.now().minus(Duration.ofMillis(heartbeatTimeoutMs));
+            return heartbeatRepository.findByLastSeenAfter(since);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to count live workers: {}", e.getMessage());
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.judge.workerservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.judge.workerservice.dto.SubmissionJob;
+import com.rabbitmq.client.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Batch mode for the submission queue: jobs are grouped by problem so the problem is loaded once,
+ * and identical sources are executed once. Every message is acked (or dead-lettered) on its own,
+ * as soon as the outcome of its submission is persisted. The listener only dispatches the batch,
+ * so each ack frees prefetch for the next delivery without waiting for the rest of the batch.
+ */
+@Service
+@ConditionalOnProperty(name = "rabbitmq.consumer.batch.enabled", havingValue = "true")
+public class BatchSubmissionConsumer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchSubmissionConsumer.class);
+    public static final String LISTENER_ID = "submissionBatchListener";
+
+    private final JudgeService judgeService;
+    private final ObjectMapper objectMapper;
+    private final InFlightDeliveries inFlightDeliveries;
+
+    @Autowired
+    public BatchSubmissionConsumer(JudgeService judgeService, ObjectMapper objectMapper,
+                                   InFlightDeliveries inFlightDeliveries) {
+        this.judgeService = judgeService;
+        this.objectMapper = objectMapper;
+        this.inFlightDeliveries = inFlightDeliveries;
+    }
+
+    // Started by JudgeWarmup
+    @RabbitListener(id = LISTENER_ID, queues = {"${rabbitmq.queue.submission}"},
+                    containerFactory = "batchRabbitListenerContainerFactory",
+                    autoStartup = "false")
+    public void consumeSubmissions(List<Message> messages, Channel channel) {
+        LOGGER.info("Received batch of {} submission jobs", messages.size());
+        inFlightDeliveries.received(messages.size());
+
+        // 1. Decode; a poison message is dead-lettered without affecting the rest of the batch
+        Map<String, List<SubmissionJob>> jobsByProblem = new LinkedHashMap<>();
+        // Keyed by identity: a redelivered duplicate is an equal record with its own delivery tag
+        Map<SubmissionJob, Long> pendingTags = Collections.synchronizedMap(new IdentityHashMap<>());
+        for (Message message : messages) {
+            long deliveryTag = message.getMessageProperties().getDeliveryTag();
+            SubmissionJob job;
+            try {
+                job = objectMapper.readValue(message.getBody(), SubmissionJob.class);
+                if (job.submissionId() == null || job.problemId() == null) {
+                    throw new IllegalArgumentException("missing submission_id or problem_id");
+                }
+            } catch (Exception e) {
+                LOGGER.error("Rejecting malformed submission job: {}", e.getMessage());
+                reject(channel, deliveryTag);
+                continue;
+            }
+            jobsByProblem.computeIfAbsent(job.problemId(), id -> new ArrayList<>()).add(job);
+            pendingTags.put(job, deliveryTag);
+        }
+
+        // 2. Judge per problem and ack each message once its submission is persisted
+        Consumer<SubmissionJob> onDone = job -> {
+            Long tag = pendingTags.remove(job);
+            if (tag != null) {
+                ack(channel, tag);
+            }
+        };
+        jobsByProblem.forEach((problemId, jobs) -> {
+            MDC.put("problemId", problemId);
+            try {
+                judgeService.processBatch(problemId, jobs, onDone)
+                        .whenComplete((done, e) -> finishBatch(problemId, jobs, e, onDone));
+            } catch (Exception e) {
+                finishBatch(problemId, jobs, e, onDone);
+            } finally {
+                MDC.clear();
+            }
+        });
+    }
+
+    private void finishBatch(String problemId, List<SubmissionJob> jobs, Throwable failure,
+                             Consumer<SubmissionJob> onDone) {
+        MDC.put("problemId", problemId);
+        try {
+            if (failure == null) {
+                LOGGER.info("Successfully processed {} submissions", jobs.size());
+            } else {
+                LOGGER.error("Failed to process submissions: {}", failure.getMessage(), failure);
+            }
+        } finally {
+            // Whatever was not reported failed unexpectedly; ack it so it is not redelivered forever
+            jobs.forEach(onDone);
+            MDC.clear();
+        }
+    }
+
+    private void ack(Channel channel, long deliveryTag) {
+        try {
+            // Jobs finish on judging threads, which share the listener's channel
+            synchronized (channel) {
+                channel.basicAck(deliveryTag, false);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to ack message {}: {}", deliveryTag, e.getMessage());
+        } finally {
+            inFlightDeliveries.settled();
+        }
+    }
+
+    private void reject(Channel channel, long deliveryTag) {
+        try {
+            // Not requeued, so the queue's dead-letter exchange routes it to the DLQ
+            synchronized (channel) {
+                channel.basicNack(deliveryTag, false, false);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to reject message {}: {}", deliveryTag, e.getMessage());
+        } finally {
+            inFlightDeliveries.settled();
+        }
+    }
+}
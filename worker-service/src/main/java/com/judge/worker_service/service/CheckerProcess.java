@@ -0,0 +1,294 @@
+package com.judge.workerservice.service;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A compiled special judge checker running in a long-lived sandbox container.
+ *
+ * <p>Protocol, over the container's stdin/stdout: for every check the worker writes three frames
+ * (input, expected output, actual output), each as {@code <byte length>\n<bytes>}. The checker
+ * answers with one line: {@code AC}, or {@code WA [message]}. It keeps serving requests until
+ * stdin is closed.
+ */
+public class CheckerProcess implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CheckerProcess.class);
+    private static final String READY = "READY";
+    private static final String CLOSED = "\u0000CLOSED";
+    private static final int MAX_STDERR = 4096;
+
+    private final DockerClient dockerClient;
+    private final String containerId;
+    private final FrameInputStream stdin = new FrameInputStream();
+    private final BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+    private final StringBuilder stdoutBuffer = new StringBuilder();
+    private final StringBuilder stderrBuffer = new StringBuilder();
+    private final ResultCallback.Adapter<Frame> attachCallback;
+    private volatile boolean alive = true;
+
+    private CheckerProcess(DockerClient dockerClient, String containerId) {
+        this.dockerClient = dockerClient;
+        this.containerId = containerId;
+        this.attachCallback = new ResultCallback.Adapter<>() {
+            @Override
+            public void onNext(Frame frame) {
+                handleFrame(frame);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                LOGGER.warn("Checker {} stream failed: {}", containerId, throwable.getMessage());
+                markDead();
+            }
+
+            @Override
+            public void onComplete() {
+                markDead();
+            }
+        };
+    }
+
+    /**
+     * Creates the container on a workspace holding {@code checker.cpp} and waits until it is ready to
+     * serve checks. The checker is only compiled if the workspace has no binary yet, so processes
+     * sharing a workspace compile it once. A non-null {@code cpusetCpus} keeps it off the cores
+     * handed to sandboxes.
+     */
+    public static CheckerProcess start(DockerClient dockerClient, String image, Path workspace,
+                                       Map<String, String> labels, int memoryLimitMb,
+                                       String cpusetCpus, long startupTimeoutMs) throws IOException {
+        HostConfig hostConfig = new HostConfig()
+                .withMemory((long) memoryLimitMb * 1024 * 1024)
+                .withMemorySwap((long) memoryLimitMb * 1024 * 1024)
+                .withCpuQuota(100000L)
+                .withCpuPeriod(100000L)
+                .withCpusetCpus(cpusetCpus)
+                .withNetworkMode("none")
+                .withPidsLimit(32L)
+                .withBinds(new Bind(workspace.toAbsolutePath().toString(), new Volume("/workspace"), AccessMode.rw));
+
+        String containerId = dockerClient.createContainerCmd(image)
+                .withHostConfig(hostConfig)
+                .withLabels(labels)
+                .withWorkingDir("/workspace")
+                .withCmd("/bin/bash", "/judge/checker.sh")
+                .withStdinOpen(true)
+                .withStdInOnce(false)
+                .withAttachStdin(true)
+                .withAttachStdout(true)
+                .withAttachStderr(true)
+                .withTty(false)
+                .exec()
+                .getId();
+
+        CheckerProcess process = new CheckerProcess(dockerClient, containerId);
+        try {
+            dockerClient.attachContainerCmd(containerId)
+                    .withStdIn(process.stdin)
+                    .withStdOut(true)
+                    .withStdErr(true)
+                    .withFollowStream(true)
+                    .withLogs(true)
+                    .exec(process.attachCallback);
+            process.attachCallback.awaitStarted(5, TimeUnit.SECONDS);
+
+            dockerClient.startContainerCmd(containerId).exec();
+
+            String line = process.responses.poll(startupTimeoutMs, TimeUnit.MILLISECONDS);
+            if (!READY.equals(line)) {
+                throw new IOException("Checker failed to start: " + process.stderr());
+            }
+            LOGGER.debug("Started checker container {}", containerId);
+            return process;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.close();
+            throw new InterruptedIOException("Interrupted while starting checker");
+        } catch (IOException | RuntimeException e) {
+            process.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs one check. Any protocol violation or timeout leaves the process dead so the pool replaces it.
+     */
+    public synchronized CheckerVerdict check(String input, String expected, String actual, long timeoutMs)
+            throws IOException {
+        if (!alive) {
+            throw new IOException("Checker process is not running");
+        }
+
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        writeFrame(request, input);
+        writeFrame(request, expected);
+        writeFrame(request, actual);
+        stdin.write(request.toByteArray());
+
+        String line;
+        try {
+            line = responses.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            alive = false;
+            throw new InterruptedIOException("Interrupted while waiting for checker");
+        }
+
+        if (line == null) {
+            alive = false;
+            throw new IOException("Checker timed out after " + timeoutMs + "ms");
+        }
+        if (CLOSED.equals(line)) {
+            throw new IOException("Checker exited: " + stderr());
+        }
+        if (line.equals("AC")) {
+            return new CheckerVerdict(true, null);
+        }
+        if (line.equals("WA") || line.startsWith("WA ")) {
+            return new CheckerVerdict(false, line.length() > 3 ? line.substring(3) : null);
+        }
+
+        alive = false;
+        throw new IOException("Unexpected checker response: " + line);
+    }
+
+    public boolean isAlive() {
+        return alive;
+    }
+
+    public String getContainerId() {
+        return containerId;
+    }
+
+    /**
+     * Stops the process; the workspace belongs to whoever created it.
+     */
+    @Override
+    public void close() {
+        alive = false;
+        stdin.close();
+        try {
+            attachCallback.close();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to close checker stream: {}", e.getMessage());
+        }
+        try {
+            dockerClient.removeContainerCmd(containerId)
+                    .withForce(true)
+                    .withRemoveVolumes(true)
+                    .exec();
+        } catch (Exception e) {
+            LOGGER.warn("Failed to remove checker container {}: {}", containerId, e.getMessage());
+        }
+    }
+
+    private void handleFrame(Frame frame) {
+        String text = new String(frame.getPayload(), StandardCharsets.UTF_8);
+        if (frame.getStreamType() == StreamType.STDERR) {
+            synchronized (stderrBuffer) {
+                if (stderrBuffer.length() < MAX_STDERR) {
+                    stderrBuffer.append(text);
+                }
+            }
+            return;
+        }
+
+        // Only called from the single attach stream thread
+        stdoutBuffer.append(text);
+        int newline;
+        while ((newline = stdoutBuffer.indexOf("\n")) >= 0) {
+            responses.offer(stdoutBuffer.substring(0, newline).trim());
+            stdoutBuffer.delete(0, newline + 1);
+        }
+    }
+
+    private void markDead() {
+        alive = false;
+        responses.offer(CLOSED);
+    }
+
+    private String stderr() {
+        synchronized (stderrBuffer) {
+            return stderrBuffer.toString().trim();
+        }
+    }
+
+    private static void writeFrame(ByteArrayOutputStream out, String content) {
+        byte[] bytes = (content != null ? content : "").getBytes(StandardCharsets.UTF_8);
+        byte[] header = (bytes.length + "\n").getBytes(StandardCharsets.US_ASCII);
+        out.write(header, 0, header.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    public record CheckerVerdict(boolean accepted, String message) {}
+
+    /**
+     * Blocking stdin for the attach stream. Unlike piped streams it may be written by any thread.
+     */
+    private static final class FrameInputStream extends InputStream {
+        private static final byte[] EOF = new byte[0];
+
+        private final BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+        private byte[] current;
+        private int position;
+
+        void write(byte[] data) {
+            if (data.length > 0) {
+                chunks.add(data);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (current == null || position >= current.length) {
+                try {
+                    current = chunks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+                position = 0;
+                if (current == EOF) {
+                    // Keep signalling end of stream to later reads
+                    chunks.add(EOF);
+                    return -1;
+                }
+            }
+            int count = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+            chunks.add(EOF);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.judge.workerservice.service;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.EventType;
+import com.judge.workerservice.util.Constants;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a single subscription to the Docker events stream and completes a per-container
+ * future when a sandbox container dies, so no thread has to block waiting on a container.
+ */
+@Component
+public class ContainerEventMonitor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContainerEventMonitor.class);
+    private static final Duration RESUBSCRIBE_DELAY = Duration.ofSeconds(2);
+
+    private final DockerClient dockerClient;
+    private final ThreadPoolTaskScheduler scheduler;
+
+    private final Map<String, CompletableFuture<ContainerExit>> pending = new ConcurrentHashMap<>();
+    private final Set<String> oomKilled = ConcurrentHashMap.newKeySet();
+
+    private volatile Closeable subscription;
+    // Bumped whenever a subscription ends, so late callbacks of an old stream are ignored
+    private final AtomicLong generation = new AtomicLong();
+    private volatile boolean running;
+
+    @Autowired
+    public ContainerEventMonitor(DockerClient dockerClient,
+                                 @Qualifier("sandboxScheduler") ThreadPoolTaskScheduler scheduler) {
+        this.dockerClient = dockerClient;
+        this.scheduler = scheduler;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        closeSubscription();
+        pending.values().forEach(future -> future.cancel(false));
+        pending.clear();
+    }
+
+    /**
+     * Registers interest in a container's exit. Must be called before the container is started.
+     */
+    public CompletableFuture<ContainerExit> register(String containerId) {
+        return pending.computeIfAbsent(containerId, id -> new CompletableFuture<>());
+    }
+
+    public void unregister(String containerId) {
+        pending.remove(containerId);
+        oomKilled.remove(containerId);
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    private void subscribe() {
+        if (!running) {
+            return;
+        }
+
+        final long current = generation.get();
+        try {
+            subscription = dockerClient.eventsCmd()
+                    .withEventTypeFilter(EventType.CONTAINER)
+                    .withEventFilter("die", "oom")
+                    .withLabelFilter(Map.of(Constants.LABEL_SANDBOX, "true"))
+                    .exec(new ResultCallback.Adapter<Event>() {
+                        @Override
+                        public void onNext(Event event) {
+                            handleEvent(event);
+                        }
+
+                        @Override
+                        public void onError(Throwable throwable) {
+                            LOGGER.warn("Docker events stream failed: {}", throwable.getMessage());
+                            streamEnded(current);
+                        }
+
+                        @Override
+                        public void onComplete() {
+                            LOGGER.debug("Docker events stream closed");
+                            streamEnded(current);
+                        }
+                    });
+            LOGGER.info("Subscribed to Docker container events");
+        } catch (Exception e) {
+            LOGGER.error("Failed to subscribe to Docker events: {}", e.getMessage());
+            streamEnded(current);
+            return;
+        }
+
+        // Containers may have exited while we were not subscribed
+        reconcile();
+    }
+
+    /**
+     * A failed stream reports both onError and onComplete; only the first callback of the
+     * current subscription schedules a new one.
+     */
+    private void streamEnded(long ended) {
+        if (generation.compareAndSet(ended, ended + 1)) {
+            scheduleResubscribe();
+        }
+    }
+
+    private void scheduleResubscribe() {
+        if (!running) {
+            return;
+        }
+        closeSubscription();
+        scheduler.schedule(this::subscribe, Instant.now().plus(RESUBSCRIBE_DELAY));
+    }
+
+    private void closeSubscription() {
+        Closeable current = subscription;
+        subscription = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                LOGGER.debug("Failed to close Docker events stream: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void handleEvent(Event event) {
+        String containerId = event.getActor() != null ? event.getActor().getId() : event.getId();
+        if (containerId == null) {
+            return;
+        }
+
+        if ("oom".equals(event.getAction())) {
+            // Only our own containers; everyone else's ids would never be removed
+            pending.computeIfPresent(containerId, (id, future) -> {
+                oomKilled.add(id);
+                return future;
+            });
+            return;
+        }
+
+        CompletableFuture<ContainerExit> future = pending.get(containerId);
+        if (future == null) {
+            return;
+        }
+
+        Integer exitCode = null;
+        if (event.getActor() != null && event.getActor().getAttributes() != null) {
+            String code = event.getActor().getAttributes().get("exitCode");
+            if (code != null) {
+                try {
+                    exitCode = Integer.parseInt(code);
+                } catch (NumberFormatException ignored) {
+                    // Leave exit code unknown
+                }
+            }
+        }
+
+        future.complete(new ContainerExit(exitCode, oomKilled.contains(containerId)));
+    }
+
+    private void reconcile() {
+        for (Map.Entry<String, CompletableFuture<ContainerExit>> entry : pending.entrySet()) {
+            if (entry.getValue().isDone()) {
+                continue;
+            }
+            try {
+                InspectContainerResponse.ContainerState state = dockerClient.inspectContainerCmd(entry.getKey())
+                        .exec()
+                        .getState();
+                if (state != null && Boolean.FALSE.equals(state.getRunning())
+                        && state.getFinishedAt() != null && !state.getFinishedAt().startsWith("0001")) {
+                    Long exitCode = state.getExitCodeLong();
+                    entry.getValue().complete(new ContainerExit(
+                            exitCode != null ? exitCode.intValue() : null,
+                            Boolean.TRUE.equals(state.getOOMKilled())));
+                }
+            } catch (Exception e) {
+                LOGGER.debug("Failed to inspect container {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    public record ContainerExit(Integer exitCode, boolean oomKilled) {}
+}
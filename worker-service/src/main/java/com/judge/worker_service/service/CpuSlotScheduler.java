@@ -0,0 +1,339 @@
+package com.judge.workerservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Hands out sandbox slots, each pinned to an exclusive physical core of the host, so that
+ * concurrent sandboxes don't disturb each other's timings. Cores holding a reserved CPU are
+ * left to the worker JVM and Docker, SMT siblings of a slot stay idle unless sharing is enabled,
+ * and each slot is bound to the memory of its NUMA node.
+ *
+ * <p>Slots are claimed host-wide through one lock file per slot under
+ * {@code sandbox.cpu.lock.dir}, held for the life of the worker, so several workers on a host
+ * (sharing that directory) split the cores between them instead of pinning onto the same ones.
+ * It defaults to a directory under {@code java.io.tmpdir}; when it cannot be used, slots are
+ * pinned without being claimed, as if this were the only worker on the host.
+ *
+ * <p>Without a readable sysfs topology (e.g. Docker Desktop) slots are not pinned and only
+ * bound concurrency to the number of CPUs that are not reserved.
+ */
+@Service
+public class CpuSlotScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CpuSlotScheduler.class);
+
+    @Value("${sandbox.cpu.pinning.enabled:true}")
+    private boolean pinningEnabled;
+
+    @Value("${sandbox.cpu.reserved:0}")
+    private String reservedCpus;
+
+    @Value("${sandbox.cpu.smt.share:false}")
+    private boolean shareSmtSiblings;
+
+    @Value("${sandbox.cpu.sysfs.path:/sys/devices/system}")
+    private String sysfsPath;
+
+    @Value("${sandbox.cpu.lock.dir:${java.io.tmpdir}/judge-cpu}")
+    private String lockDir;
+
+    private volatile List<CpuSlot> slots = List.of();
+    // Guarded by itself; a released slot goes to the longest waiter first
+    private final Deque<CpuSlot> freeSlots = new ArrayDeque<>();
+    private final Deque<CompletableFuture<CpuSlot>> waiters = new ArrayDeque<>();
+    private volatile String sharedCpus;
+    private final List<FileChannel> slotLocks = new ArrayList<>();
+
+    @Autowired
+    public CpuSlotScheduler(MeterRegistry meterRegistry) {
+        meterRegistry.gauge("judge.sandbox.slots.total", this, CpuSlotScheduler::totalSlots);
+        meterRegistry.gauge("judge.sandbox.slots.busy", this, CpuSlotScheduler::busySlots);
+    }
+
+    @PostConstruct
+    public void init() {
+        Set<Integer> reserved = parseCpuList(reservedCpus);
+        List<CpuSlot> discovered = List.of();
+        if (pinningEnabled) {
+            try {
+                discovered = discover(Paths.get(sysfsPath), reserved, shareSmtSiblings);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("CPU topology unavailable under {}, sandboxes will not be pinned: {}",
+                        sysfsPath, e.getMessage());
+            }
+        }
+
+        if (discovered.isEmpty()) {
+            int count = Math.max(1, Runtime.getRuntime().availableProcessors() - reserved.size());
+            List<CpuSlot> unpinned = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                unpinned.add(new CpuSlot(i, null, null, Set.of()));
+            }
+            discovered = unpinned;
+            sharedCpus = null;
+        } else {
+            Set<Integer> online;
+            try {
+                online = parseCpuList(Files.readString(Paths.get(sysfsPath, "cpu", "online")));
+            } catch (IOException e) {
+                online = reserved;
+            }
+            // Cores claimed by other workers on the host are busy too, so leave out every slot core
+            Set<Integer> others = sharedCpus(online, discovered);
+            sharedCpus = others.isEmpty() ? null : others.stream().map(String::valueOf).collect(Collectors.joining(","));
+            discovered = claim(discovered);
+        }
+
+        slots = List.copyOf(discovered);
+        synchronized (freeSlots) {
+            freeSlots.clear();
+            freeSlots.addAll(slots);
+        }
+
+        LOGGER.info("Sandbox slots: {} ({}), shared CPUs: {}", slots.size(),
+                isPinned() ? "pinned" : "unpinned", sharedCpus != null ? sharedCpus : "-");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (slotLocks) {
+            slotLocks.forEach(channel -> {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Released with the process anyway
+                }
+            });
+            slotLocks.clear();
+        }
+    }
+
+    /**
+     * Keeps the pinned slots whose lock file no other worker on the host holds. Without a usable
+     * lock directory nothing is coordinated, so only one worker may run per host.
+     */
+    private List<CpuSlot> claim(List<CpuSlot> discovered) {
+        if (lockDir == null || lockDir.isBlank()) {
+            LOGGER.warn("sandbox.cpu.lock.dir is not set, assuming this is the only worker on the host");
+            return discovered;
+        }
+
+        Path dir;
+        try {
+            dir = Files.createDirectories(Paths.get(lockDir));
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Cannot use CPU lock directory {}, assuming this is the only worker on the host: {}",
+                    lockDir, e.getMessage());
+            return discovered;
+        }
+
+        List<CpuSlot> claimed = new ArrayList<>();
+        try {
+            for (CpuSlot slot : discovered) {
+                FileChannel channel = FileChannel.open(dir.resolve("cpu" + slot.cpus() + ".lock"),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                if (channel.tryLock() == null) {
+                    channel.close();
+                    continue;
+                }
+                synchronized (slotLocks) {
+                    slotLocks.add(channel);
+                }
+                claimed.add(new CpuSlot(claimed.size(), slot.cpus(), slot.mems(), slot.coreCpus()));
+            }
+        } catch (IOException e) {
+            // Pinning onto cores another worker may use would be worse than not running
+            shutdown();
+            throw new IllegalStateException("Failed to lock CPU slots under " + lockDir + ": " + e.getMessage(), e);
+        }
+
+        if (claimed.isEmpty()) {
+            throw new IllegalStateException("All " + discovered.size() + " CPU slots are held by other workers on this host");
+        }
+        if (claimed.size() < discovered.size()) {
+            LOGGER.info("Claimed {} of {} CPU slots, the rest are held by other workers", claimed.size(), discovered.size());
+        }
+        return claimed;
+    }
+
+    /**
+     * Completes with a slot once one is free, without holding a thread while waiting. The caller
+     * must {@link #release} it once its sandbox is gone.
+     */
+    public CompletableFuture<CpuSlot> acquireAsync() {
+        synchronized (freeSlots) {
+            CpuSlot slot = freeSlots.poll();
+            if (slot != null) {
+                return CompletableFuture.completedFuture(slot);
+            }
+            CompletableFuture<CpuSlot> waiter = new CompletableFuture<>();
+            waiters.addLast(waiter);
+            return waiter;
+        }
+    }
+
+    public void release(CpuSlot slot) {
+        if (slot == null) {
+            return;
+        }
+        CompletableFuture<CpuSlot> waiter;
+        synchronized (freeSlots) {
+            // A waiter cancelled by its caller must not swallow the slot
+            do {
+                waiter = waiters.poll();
+            } while (waiter != null && waiter.isDone());
+            if (waiter == null) {
+                freeSlots.addLast(slot);
+                return;
+            }
+        }
+        // Completed outside the lock: the waiter's continuation starts the next sandbox
+        if (!waiter.complete(slot)) {
+            release(slot);
+        }
+    }
+
+    public boolean isPinned() {
+        return !slots.isEmpty() && slots.get(0).cpus() != null;
+    }
+
+    /**
+     * CPUs of cores that are not handed out as slots (the reserved cores), for long-lived helpers
+     * such as checker processes; {@code null} when sandboxes are not pinned or nothing is left.
+     */
+    public String sharedCpus() {
+        return sharedCpus;
+    }
+
+    public int totalSlots() {
+        return slots.size();
+    }
+
+    public int busySlots() {
+        synchronized (freeSlots) {
+            return slots.size() - freeSlots.size();
+        }
+    }
+
+    /**
+     * One slot per physical core (or per logical CPU when SMT siblings are shared), skipping any
+     * core that contains a reserved CPU. Slots are ordered by NUMA node, then by core.
+     */
+    static List<CpuSlot> discover(Path root, Set<Integer> reserved, boolean shareSmt) throws IOException {
+        Path cpuRoot = root.resolve("cpu");
+        Set<Integer> online = parseCpuList(Files.readString(cpuRoot.resolve("online")));
+
+        Map<Integer, Integer> nodeOf = new HashMap<>();
+        Path nodeRoot = root.resolve("node");
+        if (Files.isDirectory(nodeRoot)) {
+            try (DirectoryStream<Path> nodes = Files.newDirectoryStream(nodeRoot, "node[0-9]*")) {
+                for (Path node : nodes) {
+                    int nodeId = Integer.parseInt(node.getFileName().toString().substring("node".length()));
+                    for (int cpu : parseCpuList(Files.readString(node.resolve("cpulist")))) {
+                        nodeOf.put(cpu, nodeId);
+                    }
+                }
+            }
+        }
+
+        // Group logical CPUs into physical cores; siblings share package and core id
+        Map<String, List<Integer>> cores = new LinkedHashMap<>();
+        for (int cpu : online) {
+            Path topology = cpuRoot.resolve("cpu" + cpu).resolve("topology");
+            String core = Files.readString(topology.resolve("physical_package_id")).trim()
+                    + ":" + Files.readString(topology.resolve("core_id")).trim();
+            cores.computeIfAbsent(core, key -> new ArrayList<>()).add(cpu);
+        }
+
+        List<int[]> candidates = new ArrayList<>();
+        Map<Integer, Set<Integer>> coreOf = new HashMap<>();
+        for (List<Integer> siblings : cores.values()) {
+            if (siblings.stream().anyMatch(reserved::contains)) {
+                continue;
+            }
+            for (int cpu : shareSmt ? siblings : siblings.subList(0, 1)) {
+                candidates.add(new int[] {nodeOf.getOrDefault(cpu, -1), cpu});
+            }
+            for (int cpu : siblings) {
+                coreOf.put(cpu, Set.copyOf(siblings));
+            }
+        }
+        candidates.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+
+        List<CpuSlot> result = new ArrayList<>();
+        for (int[] candidate : candidates) {
+            result.add(new CpuSlot(result.size(), String.valueOf(candidate[1]),
+                    candidate[0] >= 0 ? String.valueOf(candidate[0]) : null, coreOf.get(candidate[1])));
+        }
+        return result;
+    }
+
+    /**
+     * Online CPUs outside every slot's core, so an idle SMT sibling of a slot is never shared.
+     */
+    static Set<Integer> sharedCpus(Set<Integer> online, List<CpuSlot> slots) {
+        Set<Integer> shared = new TreeSet<>(online);
+        slots.forEach(slot -> shared.removeAll(slot.coreCpus()));
+        return shared;
+    }
+
+    /**
+     * Parses the kernel's cpulist format, e.g. {@code 0-3,8,10-11}.
+     */
+    static Set<Integer> parseCpuList(String list) {
+        Set<Integer> cpus = new TreeSet<>();
+        if (list == null) {
+            return cpus;
+        }
+        for (String part : list.trim().split(",")) {
+            part = part.trim();
+            if (part.isEmpty()) {
+                continue;
+            }
+            int dash = part.indexOf('-');
+            if (dash < 0) {
+                cpus.add(Integer.parseInt(part));
+            } else {
+                int from = Integer.parseInt(part.substring(0, dash));
+                int to = Integer.parseInt(part.substring(dash + 1));
+                for (int cpu = from; cpu <= to; cpu++) {
+                    cpus.add(cpu);
+                }
+            }
+        }
+        return cpus;
+    }
+
+    /**
+     * @param cpus cpuset for the sandbox, {@code null} when unpinned
+     * @param mems NUMA node the sandbox allocates from, {@code null} when unknown
+     * @param coreCpus all logical CPUs of the slot's physical core, empty when unpinned
+     */
+    public record CpuSlot(int index, String cpus, String mems, Set<Integer> coreCpus) {}
+}
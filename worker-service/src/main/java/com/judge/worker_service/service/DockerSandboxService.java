@@ -1,49 +1,115 @@
 package com.judge.workerservice.service;
 
 import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.CreateContainerResponse;
-import com.github.dockerjava.api.command.WaitContainerResultCallback;
 import com.github.dockerjava.api.model.*;
-import com.github.dockerjava.core.command.LogContainerResultCallback;
+import com.judge.workerservice.config.WorkerInstance;
 import com.judge.workerservice.domain.JudgeResult;
+import com.judge.workerservice.service.ContainerEventMonitor.ContainerExit;
+import com.judge.workerservice.service.CpuSlotScheduler.CpuSlot;
 import com.judge.workerservice.util.Constants;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.concurrent.TimeUnit;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class DockerSandboxService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DockerSandboxService.class);
+    public static final String WORKSPACE_PREFIX = "judge-";
     
     private final DockerClient dockerClient;
     private final LanguageExecutionStrategy languageStrategy;
+    private final ContainerEventMonitor eventMonitor;
+    private final ThreadPoolTaskScheduler scheduler;
+    private final Executor dockerExecutor;
+    private final WorkerInstance workerInstance;
+    private final CpuSlotScheduler slotScheduler;
+
+    // Sandboxes owned by in-flight judgements; anything else carrying our label is leaked
+    private final Set<String> activeContainers = ConcurrentHashMap.newKeySet();
+    private final Set<Path> activeWorkspaces = ConcurrentHashMap.newKeySet();
     
     @Value("${execution.output.max.size:10240}")
     private int maxOutputSize;
 
+    // Stdout is validated as a whole (expected output or checker), so it has its own, larger cap
+    @Value("${execution.output.validation.max.size:16777216}")
+    private int maxValidatedOutputSize;
+
+    @Value("${docker.supervisor.grace.seconds:5}")
+    private int timeoutGraceSeconds;
+
     @Autowired
-    public DockerSandboxService(DockerClient dockerClient, LanguageExecutionStrategy languageStrategy) {
+    public DockerSandboxService(DockerClient dockerClient,
+                                LanguageExecutionStrategy languageStrategy,
+                                ContainerEventMonitor eventMonitor,
+                                @Qualifier("sandboxScheduler") ThreadPoolTaskScheduler scheduler,
+                                @Qualifier("sandboxDockerExecutor") Executor dockerExecutor,
+                                WorkerInstance workerInstance,
+                                CpuSlotScheduler slotScheduler) {
         this.dockerClient = dockerClient;
         this.languageStrategy = languageStrategy;
+        this.eventMonitor = eventMonitor;
+        this.scheduler = scheduler;
+        this.dockerExecutor = dockerExecutor;
+        this.workerInstance = workerInstance;
+        this.slotScheduler = slotScheduler;
+    }
+
+    /**
+     * Blocking variant of {@link #runAsync} for one-off runs such as the warmup; judgements chain
+     * their test cases over {@link #runAsync} instead.
+     */
+    public JudgeResult run(String submissionId, String sourceCode, String language, String input,
+                           int timeLimit, int memoryLimit) {
+        return runAsync(submissionId, sourceCode, language, input, timeLimit, memoryLimit).join();
+    }
+
+    /**
+     * Runs a sandbox without holding the calling thread: waits for a CPU slot, then creates and
+     * starts the container on the Docker executor. The returned future completes once the
+     * container has exited (signalled by the Docker events stream), its logs are collected and
+     * it is removed.
+     */
+    public CompletableFuture<JudgeResult> runAsync(String submissionId, String sourceCode, String language,
+                                                   String input, int timeLimit, int memoryLimit) {
+        // 0. Wait for a CPU slot; the sandbox gets that core to itself
+        return slotScheduler.acquireAsync().thenComposeAsync(
+                slot -> start(slot, submissionId, sourceCode, language, input, timeLimit, memoryLimit),
+                dockerExecutor);
     }
 
-    public JudgeResult run(String sourceCode, String language, String input, int timeLimit, int memoryLimit) {
+    private CompletableFuture<JudgeResult> start(CpuSlot slot, String submissionId, String sourceCode,
+                                                 String language, String input, int timeLimit, int memoryLimit) {
         Path tempDir = null;
         String containerId = null;
+        ScheduledFuture<?> timeout = null;
         
         try {
-            // 1. Create temporary directory
-            tempDir = Files.createTempDirectory("judge-");
+            // 1. Create temporary directory, named after its owner so orphans can be reaped
+            tempDir = Files.createTempDirectory(workspacePrefix(submissionId));
+            activeWorkspaces.add(tempDir);
             LOGGER.debug("Created temp directory: {}", tempDir);
 
             // 2. Write source code and input files
@@ -61,6 +127,8 @@ public class DockerSandboxService {
                     .withMemorySwap((long) memoryLimit * 1024 * 1024) // Disable swap
                     .withCpuQuota(100000L) // Limit to 1 CPU core
                     .withCpuPeriod(100000L)
+                    .withCpusetCpus(slot.cpus()) // Exclusive core when pinned, null otherwise
+                    .withCpusetMems(slot.mems())
                     .withNetworkMode("none") // Disable network access
                     .withPidsLimit(100L) // Prevent fork bombs
                     .withReadonlyRootfs(false) // Need write for compilation
@@ -73,125 +141,240 @@ public class DockerSandboxService {
             // 5. Create container
             CreateContainerResponse container = dockerClient.createContainerCmd(dockerImage)
                     .withHostConfig(hostConfig)
+                    .withLabels(Map.of(
+                        Constants.LABEL_SANDBOX, "true",
+                        Constants.LABEL_WORKER, workerInstance.getId(),
+                        Constants.LABEL_SUBMISSION, String.valueOf(submissionId)
+                    ))
                     .withWorkingDir("/workspace")
-                    .withCmd("/bin/bash", "/workspace/run.sh", String.valueOf(timeLimit))
+                    .withCmd("/bin/bash", "/judge/run.sh", String.valueOf(timeLimit))
                     .withAttachStdout(true)
                     .withAttachStderr(true)
                     .exec();
 
             containerId = container.getId();
+            activeContainers.add(containerId);
             LOGGER.debug("Created container: {}", containerId);
 
-            // 6. Start container
+            // 6. Register for the container's exit before starting it so the event cannot be missed
+            CompletableFuture<ContainerExit> exit = eventMonitor.register(containerId);
+            timeout = scheduler.schedule(
+                    () -> exit.completeExceptionally(new TimeoutException()),
+                    Instant.now().plusSeconds(timeLimit + timeoutGraceSeconds));
+
+            // 7. Start container
             long startTime = System.currentTimeMillis();
             dockerClient.startContainerCmd(containerId).exec();
 
-            // 7. Wait for container with timeout
-            Integer statusCode;
-            try {
-                statusCode = dockerClient.waitContainerCmd(containerId)
-                        .exec(new WaitContainerResultCallback())
-                        .awaitStatusCode(timeLimit + 5, TimeUnit.SECONDS);
-            } catch (Exception e) {
-                LOGGER.warn("Container wait timed out or failed: {}", e.getMessage());
-                // Kill the container if still running
-                try {
-                    dockerClient.killContainerCmd(containerId).exec();
-                } catch (Exception killEx) {
-                    LOGGER.error("Failed to kill container: {}", killEx.getMessage());
-                }
-                return new JudgeResult(
-                    Constants.DOCKER_TIME_LIMIT,
-                    "Execution timed out",
-                    (long) timeLimit * 1000,
-                    null
-                );
-            }
-
-            long executionTime = System.currentTimeMillis() - startTime;
-
-            // 8. Memory stats (not available in all Docker setups, so we skip it)
-            Long memoryUsed = null; // TODO: Implement when Docker stats API is stable
+            final String id = containerId;
+            final Path workspace = tempDir;
+            final CpuSlot acquired = slot;
+            final ScheduledFuture<?> containerTimeout = timeout;
 
-            // 9. Collect logs (stdout + stderr)
-            final StringBuilder outputBuilder = new StringBuilder();
-            final StringBuilder errorBuilder = new StringBuilder();
-            
-            try {
-                LogContainerResultCallback loggingCallback = new LogContainerResultCallback() {
-                    @Override
-                    public void onNext(Frame frame) {
-                        String text = new String(frame.getPayload(), StandardCharsets.UTF_8);
-                        if (frame.getStreamType() == StreamType.STDOUT) {
-                            if (outputBuilder.length() < maxOutputSize) {
-                                outputBuilder.append(text);
-                            }
-                        } else if (frame.getStreamType() == StreamType.STDERR) {
-                            if (errorBuilder.length() < maxOutputSize) {
-                                errorBuilder.append(text);
-                            }
+            // 8. Collect logs once the container has exited, or kill it on timeout
+            return exit
+                    .thenComposeAsync(containerExit -> {
+                        long executionTime = System.currentTimeMillis() - startTime;
+                        return collectLogs(id).thenApply(logs -> toJudgeResult(logs, containerExit, executionTime));
+                    }, scheduler)
+                    .exceptionallyAsync(e -> {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        if (cause instanceof TimeoutException) {
+                            LOGGER.warn("Container {} timed out", id);
+                            killQuietly(id);
+                            return new JudgeResult(
+                                Constants.DOCKER_TIME_LIMIT,
+                                "Execution timed out",
+                                (long) timeLimit * 1000,
+                                null
+                            );
                         }
-                    }
-                };
-
-                dockerClient.logContainerCmd(containerId)
-                        .withStdOut(true)
-                        .withStdErr(true)
-                        .exec(loggingCallback)
-                        .awaitCompletion(5, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                LOGGER.warn("Log collection interrupted: {}", e.getMessage());
-                Thread.currentThread().interrupt();
-            } catch (Exception e) {
-                LOGGER.warn("Failed to collect logs: {}", e.getMessage());
-            }
-
-            // 10. Parse output from run.sh
-            String fullOutput = outputBuilder.toString().trim();
-            String errorOutput = errorBuilder.toString().trim();
-            
-            // run.sh outputs format: STATUS\nOUTPUT_DATA
-            String[] lines = fullOutput.split("\n", 2);
-            String status = lines.length > 0 ? lines[0].trim() : Constants.DOCKER_INTERNAL_ERROR;
-            String outputData = lines.length > 1 ? lines[1].trim() : "";
-
-            // If there's error output and execution failed, include it
-            if (!status.equals(Constants.DOCKER_SUCCESS) && !errorOutput.isEmpty()) {
-                outputData = errorOutput;
-            }
-
-            // Truncate output if too large
-            if (outputData.length() > maxOutputSize) {
-                outputData = outputData.substring(0, maxOutputSize) + "\n... (output truncated)";
-            }
-
-            LOGGER.debug("Execution completed. Status: {}, Time: {}ms, Exit code: {}", 
-                        status, executionTime, statusCode);
-
-            return new JudgeResult(status, outputData, executionTime, memoryUsed);
+                        LOGGER.error("Unexpected error during sandbox execution: {}", cause.getMessage(), cause);
+                        return new JudgeResult(
+                            Constants.DOCKER_INTERNAL_ERROR,
+                            "Internal error: " + cause.getMessage(),
+                            null,
+                            null
+                        );
+                    }, dockerExecutor)
+                    // 9. Cleanup: Remove container and temp directory
+                    .whenCompleteAsync((result, e) -> {
+                        containerTimeout.cancel(false);
+                        eventMonitor.unregister(id);
+                        cleanup(id, workspace);
+                        slotScheduler.release(acquired);
+                    }, dockerExecutor);
 
         } catch (IOException e) {
             LOGGER.error("IO Error during sandbox execution: {}", e.getMessage(), e);
-            return new JudgeResult(
+            if (containerId != null) {
+                eventMonitor.unregister(containerId);
+            }
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            cleanup(containerId, tempDir);
+            slotScheduler.release(slot);
+            return CompletableFuture.completedFuture(new JudgeResult(
                 Constants.DOCKER_INTERNAL_ERROR,
                 "Failed to create execution environment: " + e.getMessage(),
                 null,
                 null
-            );
+            ));
         } catch (Exception e) {
             LOGGER.error("Unexpected error during sandbox execution: {}", e.getMessage(), e);
-            return new JudgeResult(
+            if (containerId != null) {
+                eventMonitor.unregister(containerId);
+            }
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            cleanup(containerId, tempDir);
+            slotScheduler.release(slot);
+            return CompletableFuture.completedFuture(new JudgeResult(
                 Constants.DOCKER_INTERNAL_ERROR,
                 "Internal error: " + e.getMessage(),
                 null,
                 null
-            );
-        } finally {
-            // 11. Cleanup: Remove container and temp directory
-            cleanup(containerId, tempDir);
+            ));
         }
     }
 
+    /**
+     * Streams stdout/stderr of an exited container without blocking the calling thread.
+     */
+    private CompletableFuture<ContainerLogs> collectLogs(String containerId) {
+        final StringBuilder outputBuilder = new StringBuilder();
+        final StringBuilder errorBuilder = new StringBuilder();
+        CompletableFuture<ContainerLogs> logs = new CompletableFuture<>();
+
+        ResultCallback.Adapter<Frame> loggingCallback = new ResultCallback.Adapter<>() {
+            @Override
+            public void onNext(Frame frame) {
+                String text = new String(frame.getPayload(), StandardCharsets.UTF_8);
+                synchronized (logs) {
+                    if (frame.getStreamType() == StreamType.STDOUT) {
+                        if (outputBuilder.length() < maxValidatedOutputSize) {
+                            outputBuilder.append(text);
+                        }
+                    } else if (frame.getStreamType() == StreamType.STDERR) {
+                        if (errorBuilder.length() < maxOutputSize) {
+                            errorBuilder.append(text);
+                        }
+                    }
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                super.onComplete();
+                complete();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                LOGGER.warn("Failed to collect logs: {}", throwable.getMessage());
+                super.onError(throwable);
+                complete();
+            }
+
+            private void complete() {
+                synchronized (logs) {
+                    logs.complete(new ContainerLogs(outputBuilder.toString(), errorBuilder.toString()));
+                }
+            }
+        };
+
+        try {
+            dockerClient.logContainerCmd(containerId)
+                    .withStdOut(true)
+                    .withStdErr(true)
+                    .exec(loggingCallback);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to collect logs: {}", e.getMessage());
+            return CompletableFuture.completedFuture(new ContainerLogs("", ""));
+        }
+
+        // Never wait on a stuck log stream longer than the grace period; keep what arrived so far
+        scheduler.schedule(() -> {
+            synchronized (logs) {
+                if (logs.complete(new ContainerLogs(outputBuilder.toString(), errorBuilder.toString()))) {
+                    LOGGER.warn("Log collection for container {} timed out", containerId);
+                }
+            }
+            try {
+                loggingCallback.close();
+            } catch (IOException ignored) {
+                // Stream already closed
+            }
+        }, Instant.now().plusSeconds(timeoutGraceSeconds));
+
+        return logs;
+    }
+
+    private JudgeResult toJudgeResult(ContainerLogs logs, ContainerExit containerExit, long executionTime) {
+        // Memory stats (not available in all Docker setups, so we skip it)
+        Long memoryUsed = null; // TODO: Implement when Docker stats API is stable
+
+        if (containerExit.oomKilled()) {
+            return new JudgeResult(Constants.DOCKER_MEMORY_LIMIT, "Memory limit exceeded", executionTime, memoryUsed);
+        }
+
+        // Parse output from run.sh
+        String fullOutput = logs.stdout().trim();
+        String errorOutput = logs.stderr().trim();
+        
+        // run.sh outputs format: STATUS\nOUTPUT_DATA
+        String[] lines = fullOutput.split("\n", 2);
+        String status = lines.length > 0 ? lines[0].trim() : Constants.DOCKER_INTERNAL_ERROR;
+        String outputData = lines.length > 1 ? lines[1].trim() : "";
+
+        // If there's error output and execution failed, include it
+        if (!status.equals(Constants.DOCKER_SUCCESS) && !errorOutput.isEmpty()) {
+            outputData = errorOutput;
+        }
+
+        // Truncate output if too large; a successful run keeps its whole stdout for validation,
+        // and anything beyond the validation cap can only be a wrong answer
+        int limit = status.equals(Constants.DOCKER_SUCCESS) ? maxValidatedOutputSize : maxOutputSize;
+        if (outputData.length() > limit) {
+            outputData = outputData.substring(0, limit) + "\n... (output truncated)";
+        }
+
+        LOGGER.debug("Execution completed. Status: {}, Time: {}ms, Exit code: {}", 
+                    status, executionTime, containerExit.exitCode());
+
+        return new JudgeResult(status, outputData, executionTime, memoryUsed);
+    }
+
+    private void killQuietly(String containerId) {
+        try {
+            dockerClient.killContainerCmd(containerId).exec();
+        } catch (Exception killEx) {
+            LOGGER.error("Failed to kill container: {}", killEx.getMessage());
+        }
+    }
+
+    /**
+     * Workspace directories are named {@code judge-<workerId>_<submissionId>_<random>}
+     */
+    private String workspacePrefix(String submissionId) {
+        String submission = submissionId != null ? submissionId.replaceAll("[^A-Za-z0-9-]", "") : "none";
+        return WORKSPACE_PREFIX + workerInstance.getId() + "_" + submission + "_";
+    }
+
+    public boolean isActiveContainer(String containerId) {
+        return activeContainers.contains(containerId);
+    }
+
+    public boolean isActiveWorkspace(Path workspace) {
+        return activeWorkspaces.contains(workspace);
+    }
+
+    public int activeSandboxCount() {
+        return activeContainers.size();
+    }
+
     /**
      * Clean up Docker container and temporary directory
      */
@@ -205,7 +388,10 @@ public class DockerSandboxService {
                         .exec();
                 LOGGER.debug("Removed container: {}", containerId);
             } catch (Exception e) {
+                // Left for the reaper
                 LOGGER.warn("Failed to remove container {}: {}", containerId, e.getMessage());
+            } finally {
+                activeContainers.remove(containerId);
             }
         }
 
@@ -215,8 +401,13 @@ public class DockerSandboxService {
                 FileUtils.deleteDirectory(tempDir.toFile());
                 LOGGER.debug("Deleted temp directory: {}", tempDir);
             } catch (IOException e) {
+                // Left for the reaper
                 LOGGER.warn("Failed to delete temp directory {}: {}", tempDir, e.getMessage());
+            } finally {
+                activeWorkspaces.remove(tempDir);
             }
         }
     }
+
+    private record ContainerLogs(String stdout, String stderr) {}
 }
@@ -0,0 +1,28 @@
+package com.judge.workerservice.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Messages this worker has received from the judge queues and not yet acked or rejected. The
+ * broker no longer reports them as ready, so they are published with the worker's heartbeat
+ * for the autoscaling backlog.
+ */
+@Component
+public class InFlightDeliveries {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    public void received(int messages) {
+        count.addAndGet(messages);
+    }
+
+    public void settled() {
+        count.decrementAndGet();
+    }
+
+    public int count() {
+        return count.get();
+    }
+}
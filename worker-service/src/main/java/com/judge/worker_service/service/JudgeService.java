@@ -1,19 +1,38 @@
 package com.judge.workerservice.service;
 
+import com.judge.workerservice.config.WorkerInstance;
 import com.judge.workerservice.domain.*;
 import com.judge.workerservice.dto.SubmissionJob;
 import com.judge.workerservice.repository.ProblemRepository;
 import com.judge.workerservice.repository.SubmissionRepository;
+import com.judge.workerservice.service.CheckerProcess.CheckerVerdict;
 import com.judge.workerservice.util.Constants;
 import com.judge.workerservice.util.OutputValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Service
 public class JudgeService {
@@ -22,147 +41,437 @@ public class JudgeService {
     
     private final SubmissionRepository submissionRepository;
     private final ProblemRepository problemRepository;
+    private final MongoTemplate mongoTemplate;
     private final DockerSandboxService sandboxService;
     private final OutputValidator outputValidator;
+    private final TestOrderingService testOrderingService;
+    private final WorkerInstance workerInstance;
+    private final StatsService statsService;
+    private final SubmissionDetailsService submissionDetailsService;
+    private final SpecialJudgeService specialJudgeService;
+    private final ServiceTimeTracker serviceTimeTracker;
+    private final Executor judgingExecutor;
+
+    @Value("${judge.details.max.field.size:1024}")
+    private int detailMaxSize;
+
+    @Value("${judge.deadline.slack.ms:60000}")
+    private long deadlineSlackMs;
+
+    private final AtomicInteger activeJudgements = new AtomicInteger();
 
     @Autowired
     public JudgeService(
             SubmissionRepository submissionRepository,
             ProblemRepository problemRepository,
+            MongoTemplate mongoTemplate,
             DockerSandboxService sandboxService,
-            OutputValidator outputValidator) {
+            OutputValidator outputValidator,
+            TestOrderingService testOrderingService,
+            WorkerInstance workerInstance,
+            StatsService statsService,
+            SubmissionDetailsService submissionDetailsService,
+            SpecialJudgeService specialJudgeService,
+            ServiceTimeTracker serviceTimeTracker,
+            @Qualifier("judgingExecutor") Executor judgingExecutor) {
         this.submissionRepository = submissionRepository;
         this.problemRepository = problemRepository;
+        this.mongoTemplate = mongoTemplate;
         this.sandboxService = sandboxService;
         this.outputValidator = outputValidator;
+        this.testOrderingService = testOrderingService;
+        this.workerInstance = workerInstance;
+        this.statsService = statsService;
+        this.submissionDetailsService = submissionDetailsService;
+        this.specialJudgeService = specialJudgeService;
+        this.serviceTimeTracker = serviceTimeTracker;
+        this.judgingExecutor = judgingExecutor;
     }
 
     public void processSubmission(SubmissionJob job) throws Exception {
-        // 1. Find submission and update status to "Judging"
-        Submission submission = submissionRepository.findById(job.submissionId())
-                .orElseThrow(() -> new RuntimeException("Submission not found: " + job.submissionId()));
-        
-        submission.setStatus(Constants.STATUS_JUDGING);
-        submissionRepository.save(submission);
+        activeJudgements.incrementAndGet();
+        try {
+            // 1. Claim the submission by moving it from "Pending" to "Judging"
+            Submission submission = startJudging(job);
+            if (submission == null) {
+                return;
+            }
 
-        // 2. Get problem's hidden test cases
-        Problem problem = problemRepository.findById(job.problemId())
-                .orElseThrow(() -> new RuntimeException("Problem not found: " + job.problemId()));
+            // 2. Get problem's hidden test cases
+            Problem problem = problemRepository.findById(job.problemId())
+                    .orElseThrow(() -> new RuntimeException("Problem not found: " + job.problemId()));
 
-        // Use problem-specific limits or defaults
-        int timeLimit = problem.getTimeLimit() != null ? problem.getTimeLimit() : job.timeLimit();
-        int memoryLimit = problem.getMemoryLimit() != null ? problem.getMemoryLimit() : job.memoryLimit();
+            // 3. Judge and persist; the listener thread waits, as its message is acked on return
+            ExecutionKey execution = ExecutionKey.of(job, problem);
+            SubmissionVerdict verdict = judge(problem, job.submissionId(), execution.language(),
+                    execution.sourceCode(), execution.timeLimit(), execution.memoryLimit());
+            serviceTimeTracker.record(execution.language(), verdict.totalExecutionTimeMs());
+            applyVerdict(submission, verdict);
+            statsService.recordVerdict(submission, problem);
+            
+            LOGGER.info("Submission processed. Verdict: {}, Passed: {}/{}", 
+                        verdict.status(), verdict.testCasesPassed(), verdict.totalTestCases());
+        } finally {
+            activeJudgements.decrementAndGet();
+        }
+    }
 
-        String finalVerdict = Constants.STATUS_ACCEPTED;
-        String finalOutput = "All test cases passed";
-        List<TestCaseResult> testResults = new ArrayList<>();
-        int testCasesPassed = 0;
-        long maxExecutionTime = 0;
-        long maxMemoryUsed = 0;
+    /**
+     * Judges a batch of jobs for the same problem. The problem is loaded once, and jobs with the
+     * same language, source and limits are executed once with the verdict applied to each of them.
+     * Distinct executions run concurrently (sandbox slots bound the actual concurrency), and
+     * {@code onDone} is called for each job as soon as its outcome is persisted. Failures are
+     * recorded per submission; the returned future completes once every group is done.
+     */
+    public CompletableFuture<Void> processBatch(String problemId, List<SubmissionJob> jobs,
+                                                Consumer<SubmissionJob> onDone) {
+        Problem problem;
+        try {
+            problem = problemRepository.findById(problemId)
+                    .orElseThrow(() -> new RuntimeException("Problem not found: " + problemId));
+        } catch (Exception e) {
+            LOGGER.error("Failed to load problem {} for batch: {}", problemId, e.getMessage());
+            jobs.forEach(job -> {
+                updateSubmissionStatusToError(job.submissionId(), "Internal Judge Error: " + e.getMessage());
+                onDone.accept(job);
+            });
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Map<ExecutionKey, List<SubmissionJob>> executions = new LinkedHashMap<>();
+        for (SubmissionJob job : jobs) {
+            executions.computeIfAbsent(ExecutionKey.of(job, problem), key -> new ArrayList<>()).add(job);
+        }
+        LOGGER.info("Judging batch for problem {}: {} jobs, {} distinct executions",
+                    problemId, jobs.size(), executions.size());
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(executions.size());
+        executions.forEach((execution, group) -> {
+            activeJudgements.incrementAndGet();
+            tasks.add(judgeGroup(problem, execution, group, onDone)
+                    .whenComplete((done, e) -> activeJudgements.decrementAndGet()));
+        });
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Claims the group's submissions, judges the source once and persists the verdict on each;
+     * only the Mongo work occupies a judging thread.
+     */
+    private CompletableFuture<Void> judgeGroup(Problem problem, ExecutionKey execution, List<SubmissionJob> group,
+                                               Consumer<SubmissionJob> onDone) {
+        List<Submission> submissions = new ArrayList<>(group.size());
+        List<SubmissionJob> claimed = new ArrayList<>(group.size());
+
+        return CompletableFuture.runAsync(() -> {
+            MDC.put("problemId", problem.getId());
+            try {
+                for (SubmissionJob job : group) {
+                    MDC.put("submissionId", job.submissionId());
+                    try {
+                        Submission submission = startJudging(job);
+                        if (submission != null) {
+                            submissions.add(submission);
+                            claimed.add(job);
+                            continue;
+                        }
+                    } catch (Exception e) {
+                        LOGGER.error("Failed to start judging submission {}: {}", job.submissionId(), e.getMessage());
+                        updateSubmissionStatusToError(job.submissionId(), "Internal Judge Error: " + e.getMessage());
+                    }
+                    onDone.accept(job);
+                }
+            } finally {
+                MDC.clear();
+            }
+        }, judgingExecutor).thenCompose(ignored -> {
+            if (submissions.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            // The group runs under its first submission; the others share the verdict
+            return judgeAsync(problem, submissions.get(0).getId(), execution.language(), execution.sourceCode(),
+                    execution.timeLimit(), execution.memoryLimit())
+                    .handleAsync((verdict, e) -> {
+                        MDC.put("problemId", problem.getId());
+                        try {
+                            persistGroup(problem, execution, submissions, claimed, verdict, e, onDone);
+                        } finally {
+                            MDC.clear();
+                        }
+                        return null;
+                    }, judgingExecutor);
+        });
+    }
+
+    private void persistGroup(Problem problem, ExecutionKey execution, List<Submission> submissions,
+                              List<SubmissionJob> claimed, SubmissionVerdict verdict, Throwable failure,
+                              Consumer<SubmissionJob> onDone) {
+        if (failure != null) {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            LOGGER.error("Failed to judge batch group for problem {}: {}", problem.getId(), cause.getMessage(), cause);
+            for (int i = 0; i < submissions.size(); i++) {
+                updateSubmissionStatusToError(submissions.get(i).getId(), "Internal Judge Error: " + cause.getMessage());
+                onDone.accept(claimed.get(i));
+            }
+            return;
+        }
+
+        // One execution served the whole group, so each queued job cost a share of it
+        long shareMs = verdict.totalExecutionTimeMs() / submissions.size();
+        submissions.forEach(submission -> serviceTimeTracker.record(execution.language(), shareMs));
+
+        for (int i = 0; i < submissions.size(); i++) {
+            Submission submission = submissions.get(i);
+            MDC.put("submissionId", submission.getId());
+            try {
+                applyVerdict(submission, verdict);
+                statsService.recordVerdict(submission, problem);
+            } catch (Exception e) {
+                LOGGER.error("Failed to persist verdict for submission {}: {}", submission.getId(), e.getMessage());
+                updateSubmissionStatusToError(submission.getId(), "Internal Judge Error: " + e.getMessage());
+            }
+            onDone.accept(claimed.get(i));
+        }
+        LOGGER.info("Batch group processed. Verdict: {}, Submissions: {}", verdict.status(), submissions.size());
+    }
+
+    /**
+     * Claims a pending submission for this worker. Returns null when it is no longer pending:
+     * a duplicate delivery, or the redelivery of a job still claimed by a dead worker, which
+     * the reaper requeues once it has reset the submission.
+     */
+    private Submission startJudging(SubmissionJob job) {
+        Query pending = Query.query(Criteria.where("_id").is(job.submissionId())
+                .and("status").is(Constants.STATUS_PENDING));
+        Update claim = new Update()
+                .set("status", Constants.STATUS_JUDGING)
+                .set("worker_id", workerInstance.getId());
+        Submission submission = mongoTemplate.findAndModify(pending, claim,
+                FindAndModifyOptions.options().returnNew(true), Submission.class);
 
+        if (submission == null) {
+            if (!submissionRepository.existsById(job.submissionId())) {
+                throw new RuntimeException("Submission not found: " + job.submissionId());
+            }
+            LOGGER.info("Submission {} is no longer pending, skipping delivery", job.submissionId());
+        }
+        return submission;
+    }
+
+    /**
+     * Runs a source against the problem's hidden test cases without touching any submission.
+     * Blocks the calling thread; see {@link #judgeAsync}.
+     */
+    public SubmissionVerdict judge(Problem problem, String submissionId, String language, String sourceCode,
+                                   int timeLimit, int memoryLimit) {
+        try {
+            return judgeAsync(problem, submissionId, language, sourceCode, timeLimit, memoryLimit).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the test cases one after another, each started when the previous sandbox has finished,
+     * so no thread waits on a running container or for a free CPU slot. Outcomes are validated
+     * on the judging executor.
+     */
+    public CompletableFuture<SubmissionVerdict> judgeAsync(Problem problem, String submissionId, String language,
+                                                           String sourceCode, int timeLimit, int memoryLimit) {
         List<TestCase> testCases = problem.getHiddenTestCases();
         if (testCases == null || testCases.isEmpty()) {
-            throw new RuntimeException("No test cases found for problem");
+            return CompletableFuture.failedFuture(new RuntimeException("No test cases found for problem"));
         }
 
-        // 3. Loop through all test cases
-        for (int i = 0; i < testCases.size(); i++) {
-            TestCase testCase = testCases.get(i);
-            
-            LOGGER.debug("Running test case {}/{}", i + 1, testCases.size());
-            
-            JudgeResult result = sandboxService.run(
-                    job.sourceCode(),
-                    job.language(),
-                    testCase.getInput(),
-                    timeLimit,
-                    memoryLimit
-            );
+        // Run test cases most likely to fail first.
+        // Verdicts and results always use the original test numbering.
+        String testSet = TestOrderingService.testSetKey(testCases);
+        List<Integer> executionOrder = testOrderingService.executionOrder(problem.getId(), testSet, testCases.size());
+        // Every test running into its time limit, plus slack for compiling, slots and checking
+        long deadline = System.currentTimeMillis() + testCases.size() * timeLimit * 1000L + deadlineSlackMs;
+        Judgement judgement = new Judgement(problem, submissionId, language, sourceCode, timeLimit, memoryLimit,
+                testCases, executionOrder, deadline);
 
-            // Track max execution time and memory
-            if (result.executionTimeMs() != null) {
-                maxExecutionTime = Math.max(maxExecutionTime, result.executionTimeMs());
-            }
-            if (result.memoryUsedKb() != null) {
-                maxMemoryUsed = Math.max(maxMemoryUsed, result.memoryUsedKb());
+        return runTests(judgement, 0).thenApplyAsync(done -> {
+            // Compilation and judge errors say nothing about how discriminating a test case is
+            if (!judgement.finalVerdict.equals(Constants.STATUS_COMPILATION_ERROR)
+                    && !judgement.finalVerdict.equals(Constants.STATUS_INTERNAL_ERROR)) {
+                testOrderingService.recordOutcome(problem.getId(), testSet, testCases.size(),
+                        judgement.executionTimes, judgement.failedIndex);
             }
+            return judgement.verdict();
+        }, judgingExecutor);
+    }
 
-            // 4. Analyze result from sandbox
-            String testStatus;
-            String actualOutput = result.output();
-            
-            switch (result.status()) {
-                case Constants.DOCKER_COMPILATION_ERROR:
-                    finalVerdict = Constants.STATUS_COMPILATION_ERROR;
-                    finalOutput = truncateOutput(result.output(), 1000);
-                    testStatus = Constants.STATUS_COMPILATION_ERROR;
-                    break;
-                    
-                case Constants.DOCKER_TIME_LIMIT:
-                    finalVerdict = Constants.STATUS_TIME_LIMIT;
-                    finalOutput = "Time limit exceeded on test case " + (i + 1);
-                    testStatus = Constants.STATUS_TIME_LIMIT;
-                    break;
-                    
-                case Constants.DOCKER_RUNTIME_ERROR:
-                    finalVerdict = Constants.STATUS_RUNTIME_ERROR;
-                    finalOutput = truncateOutput(result.output(), 1000);
-                    testStatus = Constants.STATUS_RUNTIME_ERROR;
-                    break;
-                    
-                case Constants.DOCKER_INTERNAL_ERROR:
+    private CompletableFuture<Void> runTests(Judgement judgement, int position) {
+        if (position >= judgement.executionOrder.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int i = judgement.executionOrder.get(position);
+        LOGGER.debug("Running test case {} ({}/{})", i + 1, position + 1, judgement.testCases.size());
+
+        return sandboxService.runAsync(
+                        judgement.submissionId,
+                        judgement.sourceCode,
+                        judgement.language,
+                        judgement.testCases.get(i).getInput(),
+                        judgement.timeLimit,
+                        judgement.memoryLimit)
+                .thenApplyAsync(result -> {
+                    MDC.put("submissionId", judgement.submissionId);
+                    try {
+                        return recordTest(judgement, i, result);
+                    } finally {
+                        MDC.clear();
+                    }
+                }, judgingExecutor)
+                // If we found an error, stop processing test cases
+                .thenCompose(accepted -> accepted ? runTests(judgement, position + 1) : CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Analyzes one sandbox result; returns whether the test passed and judging goes on.
+     */
+    private boolean recordTest(Judgement judgement, int i, JudgeResult result) {
+        Problem problem = judgement.problem;
+        TestCase testCase = judgement.testCases.get(i);
+        judgement.executionTimes.put(i, result.executionTimeMs());
+
+        // Track max execution time and memory
+        if (result.executionTimeMs() != null) {
+            judgement.maxExecutionTime = Math.max(judgement.maxExecutionTime, result.executionTimeMs());
+            judgement.totalExecutionTime += result.executionTimeMs();
+        }
+        if (result.memoryUsedKb() != null) {
+            judgement.maxMemoryUsed = Math.max(judgement.maxMemoryUsed, result.memoryUsedKb());
+        }
+
+        // Analyze result from sandbox
+        String finalVerdict = Constants.STATUS_ACCEPTED;
+        String finalOutput = null;
+        String testStatus;
+        String actualOutput = result.output();
+        String feedback = null;
+
+        switch (result.status()) {
+            case Constants.DOCKER_COMPILATION_ERROR:
+                finalVerdict = Constants.STATUS_COMPILATION_ERROR;
+                finalOutput = truncateOutput(result.output(), 1000);
+                testStatus = Constants.STATUS_COMPILATION_ERROR;
+                break;
+
+            case Constants.DOCKER_TIME_LIMIT:
+                finalVerdict = Constants.STATUS_TIME_LIMIT;
+                finalOutput = "Time limit exceeded on test case " + (i + 1);
+                testStatus = Constants.STATUS_TIME_LIMIT;
+                break;
+
+            case Constants.DOCKER_MEMORY_LIMIT:
+                finalVerdict = Constants.STATUS_MEMORY_LIMIT;
+                finalOutput = "Memory limit exceeded on test case " + (i + 1);
+                testStatus = Constants.STATUS_MEMORY_LIMIT;
+                break;
+
+            case Constants.DOCKER_RUNTIME_ERROR:
+                finalVerdict = Constants.STATUS_RUNTIME_ERROR;
+                finalOutput = truncateOutput(result.output(), 1000);
+                testStatus = Constants.STATUS_RUNTIME_ERROR;
+                break;
+
+            case Constants.DOCKER_INTERNAL_ERROR:
+                finalVerdict = Constants.STATUS_INTERNAL_ERROR;
+                finalOutput = "Judge Internal Error";
+                testStatus = Constants.STATUS_INTERNAL_ERROR;
+                break;
+
+            case Constants.DOCKER_SUCCESS:
+                // Validate output, with the problem's special judge if it ships one
+                CheckerVerdict check;
+                try {
+                    check = validate(problem, testCase, result.output(), judgement.deadline);
+                } catch (Exception e) {
+                    LOGGER.error("Checker failed on test case {}: {}", i + 1, e.getMessage());
                     finalVerdict = Constants.STATUS_INTERNAL_ERROR;
                     finalOutput = "Judge Internal Error";
                     testStatus = Constants.STATUS_INTERNAL_ERROR;
                     break;
-                    
-                case Constants.DOCKER_SUCCESS:
-                    // Validate output
-                    if (outputValidator.validate(testCase.getOutput(), result.output())) {
-                        testStatus = Constants.STATUS_ACCEPTED;
-                        testCasesPassed++;
-                    } else {
-                        finalVerdict = Constants.STATUS_WRONG_ANSWER;
-                        finalOutput = "Wrong answer on test case " + (i + 1);
-                        testStatus = Constants.STATUS_WRONG_ANSWER;
-                    }
-                    break;
-                    
-                default:
-                    testStatus = "Unknown";
-            }
+                }
+                feedback = check.message();
+                if (check.accepted()) {
+                    testStatus = Constants.STATUS_ACCEPTED;
+                    judgement.testCasesPassed++;
+                } else {
+                    finalVerdict = Constants.STATUS_WRONG_ANSWER;
+                    finalOutput = "Wrong answer on test case " + (i + 1);
+                    testStatus = Constants.STATUS_WRONG_ANSWER;
+                }
+                break;
 
-            // Store individual test result
-            TestCaseResult testResult = new TestCaseResult(
-                i + 1,
-                testStatus,
-                truncateOutput(testCase.getInput(), 100),
-                truncateOutput(testCase.getOutput(), 100),
-                truncateOutput(actualOutput, 100),
-                result.executionTimeMs()
-            );
-            testResults.add(testResult);
+            default:
+                testStatus = "Unknown";
+        }
 
-            // If we found an error, stop processing test cases
-            if (!finalVerdict.equals(Constants.STATUS_ACCEPTED)) {
-                break;
-            }
+        // Store individual test result
+        judgement.testResults.add(new TestCaseResult(
+            i + 1,
+            testStatus,
+            truncateOutput(testCase.getInput(), detailMaxSize),
+            truncateOutput(testCase.getOutput(), detailMaxSize),
+            truncateOutput(actualOutput, detailMaxSize),
+            result.executionTimeMs(),
+            feedback != null ? truncateOutput(feedback, detailMaxSize) : null
+        ));
+
+        if (!finalVerdict.equals(Constants.STATUS_ACCEPTED)) {
+            judgement.finalVerdict = finalVerdict;
+            judgement.finalOutput = finalOutput;
+            judgement.failedIndex = i;
+            return false;
         }
+        return true;
+    }
 
-        // 5. Update submission with final result
-        submission.setStatus(finalVerdict);
-        submission.setVerdict(finalOutput);
-        submission.setExecutionTime(maxExecutionTime);
-        submission.setMemoryUsed(maxMemoryUsed);
-        submission.setTestCasesPassed(testCasesPassed);
-        submission.setTotalTestCases(testCases.size());
+    /**
+     * Persists a verdict onto a submission: compact summary on the document,
+     * full per-case results in the details store.
+     */
+    public void applyVerdict(Submission submission, SubmissionVerdict verdict) {
+        submission.setStatus(verdict.status());
+        submission.setVerdict(verdict.verdict());
+        submission.setExecutionTime(verdict.maxExecutionTimeMs());
+        submission.setMemoryUsed(verdict.maxMemoryUsedKb());
+        submission.setTestCasesPassed(verdict.testCasesPassed());
+        submission.setTotalTestCases(verdict.totalTestCases());
         submission.setJudgedAt(LocalDateTime.now());
-        submission.setTestResults(testResults);
-        
-        submissionRepository.save(submission);
+        submission.setTestsExecuted(verdict.testResults().size());
+        submission.setFirstFailedCase(verdict.firstFailedCase());
         
-        LOGGER.info("Submission processed. Verdict: {}, Passed: {}/{}", 
-                    finalVerdict, testCasesPassed, testCases.size());
+        submissionDetailsService.store(submission.getId(), verdict.testResults());
+
+        // Targeted update: a whole-document save would write back stale fields such as stats_recorded
+        Update update = new Update()
+                .set("status", submission.getStatus())
+                .set("verdict", submission.getVerdict())
+                .set("executionTime", submission.getExecutionTime())
+                .set("memoryUsed", submission.getMemoryUsed())
+                .set("testCasesPassed", submission.getTestCasesPassed())
+                .set("totalTestCases", submission.getTotalTestCases())
+                .set("judgedAt", submission.getJudgedAt())
+                .set("testsExecuted", submission.getTestsExecuted())
+                .set("firstFailedCase", submission.getFirstFailedCase())
+                .set("updatedAt", LocalDateTime.now());
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(submission.getId())), update, Submission.class);
+    }
+
+    /**
+     * Number of live (queue driven) judgements currently running on this worker.
+     */
+    public int activeJudgements() {
+        return activeJudgements.get();
     }
     
     public void processTestSubmission(SubmissionJob job) {
@@ -173,12 +482,26 @@ public class JudgeService {
     }
     
     public void updateSubmissionStatusToError(String submissionId, String errorMessage) {
-        submissionRepository.findById(submissionId).ifPresent(submission -> {
-            submission.setStatus(Constants.STATUS_INTERNAL_ERROR);
-            submission.setVerdict(errorMessage);
-            submission.setJudgedAt(LocalDateTime.now());
-            submissionRepository.save(submission);
-        });
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .set("status", Constants.STATUS_INTERNAL_ERROR)
+                .set("verdict", errorMessage)
+                .set("judgedAt", now)
+                .set("updatedAt", now);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(submissionId)), update, Submission.class);
+    }
+    
+    /**
+     * Checks an output with the problem's special judge if it ships one, keeping the checker's
+     * message as feedback; otherwise compares it with the expected output.
+     */
+    private CheckerVerdict validate(Problem problem, TestCase testCase, String actualOutput, long deadline)
+            throws IOException {
+        if (specialJudgeService.hasChecker(problem)) {
+            return specialJudgeService.check(problem, testCase.getInput(), testCase.getOutput(), actualOutput,
+                    deadline);
+        }
+        return new CheckerVerdict(outputValidator.validate(testCase.getOutput(), actualOutput), null);
     }
     
     private String truncateOutput(String output, int maxLength) {
@@ -186,4 +509,70 @@ public class JudgeService {
         if (output.length() <= maxLength) return output;
         return output.substring(0, maxLength) + "\n... (truncated)";
     }
+
+    /**
+     * State of one judgement as its test cases run; each step runs after the previous one finished.
+     */
+    private static final class Judgement {
+        private final Problem problem;
+        private final String submissionId;
+        private final String language;
+        private final String sourceCode;
+        private final int timeLimit;
+        private final int memoryLimit;
+        private final List<TestCase> testCases;
+        private final List<Integer> executionOrder;
+        private final long deadline;
+
+        private final List<TestCaseResult> testResults = new ArrayList<>();
+        private final Map<Integer, Long> executionTimes = new LinkedHashMap<>();
+        private String finalVerdict = Constants.STATUS_ACCEPTED;
+        private String finalOutput = "All test cases passed";
+        private int testCasesPassed;
+        private int failedIndex = -1;
+        private long maxExecutionTime;
+        private long totalExecutionTime;
+        private long maxMemoryUsed;
+
+        Judgement(Problem problem, String submissionId, String language, String sourceCode, int timeLimit,
+                  int memoryLimit, List<TestCase> testCases, List<Integer> executionOrder, long deadline) {
+            this.problem = problem;
+            this.submissionId = submissionId;
+            this.language = language;
+            this.sourceCode = sourceCode;
+            this.timeLimit = timeLimit;
+            this.memoryLimit = memoryLimit;
+            this.testCases = testCases;
+            this.executionOrder = executionOrder;
+            this.deadline = deadline;
+        }
+
+        SubmissionVerdict verdict() {
+            // Report results in the original test numbering, not execution order
+            testResults.sort(Comparator.comparingInt(TestCaseResult::testCaseNumber));
+            return new SubmissionVerdict(
+                    finalVerdict,
+                    finalOutput,
+                    testCasesPassed,
+                    testCases.size(),
+                    failedIndex >= 0 ? failedIndex + 1 : null,
+                    maxExecutionTime,
+                    maxMemoryUsed,
+                    testResults,
+                    totalExecutionTime
+            );
+        }
+    }
+
+    /**
+     * Everything that determines a verdict besides the problem itself.
+     */
+    private record ExecutionKey(String language, String sourceCode, int timeLimit, int memoryLimit) {
+        // Use problem-specific limits or defaults
+        static ExecutionKey of(SubmissionJob job, Problem problem) {
+            int timeLimit = problem.getTimeLimit() != null ? problem.getTimeLimit() : job.timeLimit();
+            int memoryLimit = problem.getMemoryLimit() != null ? problem.getMemoryLimit() : job.memoryLimit();
+            return new ExecutionKey(job.language(), job.sourceCode(), timeLimit, memoryLimit);
+        }
+    }
 }
@@ -0,0 +1,203 @@
+package com.judge.workerservice.service;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.judge.workerservice.domain.JudgeResult;
+import com.judge.workerservice.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Warms a freshly started worker before it takes any work: verifies the judge images are present
+ * locally and runs one dummy judgement per language (image layers, page cache, JIT). Until then
+ * the "judgeWarmup" indicator keeps the readiness probe out of service and no queue is consumed.
+ *
+ * <p>Under AOT the submission consumer (batch or single) is chosen when the image is built, since
+ * its bean condition is evaluated then; the registered one is used and a mismatch is logged.
+ */
+@Component
+public class JudgeWarmup implements HealthIndicator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JudgeWarmup.class);
+
+    // Trivial program per language that echoes its input
+    private static final Map<String, String> WARMUP_SOURCES = Map.of(
+            "cpp", "#include <iostream>\nint main(){std::string s;std::cin>>s;std::cout<<s<<std::endl;}\n",
+            "java", "public class Main{public static void main(String[] a){System.out.println(new java.util.Scanner(System.in).next());}}\n",
+            "python", "print(input())\n",
+            "javascript", "console.log(require('fs').readFileSync(0,'utf8').trim());\n"
+    );
+    private static final String WARMUP_INPUT = "warmup";
+
+    private final DockerClient dockerClient;
+    private final DockerSandboxService sandboxService;
+    private final LanguageExecutionStrategy languageStrategy;
+    private final RabbitListenerEndpointRegistry listenerRegistry;
+    private final ThreadPoolTaskScheduler warmupScheduler;
+
+    private volatile String submissionListenerId;
+    private volatile boolean warm;
+    private volatile String lastError;
+
+    @Value("${judge.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${judge.warmup.retry.ms:30000}")
+    private long retryMs;
+
+    @Value("${rabbitmq.consumer.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Autowired
+    public JudgeWarmup(DockerClient dockerClient,
+                       DockerSandboxService sandboxService,
+                       LanguageExecutionStrategy languageStrategy,
+                       RabbitListenerEndpointRegistry listenerRegistry,
+                       @Qualifier("warmupScheduler") ThreadPoolTaskScheduler warmupScheduler) {
+        this.dockerClient = dockerClient;
+        this.sandboxService = sandboxService;
+        this.languageStrategy = languageStrategy;
+        this.listenerRegistry = listenerRegistry;
+        this.warmupScheduler = warmupScheduler;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        // Resolved up front: a worker that can never consume submissions must not start at all
+        submissionListenerId = resolveSubmissionListener();
+        if (!enabled) {
+            markWarm();
+            return;
+        }
+        warmupScheduler.execute(this::warmUp);
+    }
+
+    @Override
+    public Health health() {
+        if (warm) {
+            return Health.up().build();
+        }
+        Health.Builder builder = Health.outOfService().withDetail("phase", "warming up");
+        if (lastError != null) {
+            builder.withDetail("error", lastError);
+        }
+        return builder.build();
+    }
+
+    public boolean isWarm() {
+        return warm;
+    }
+
+    private void warmUp() {
+        long start = System.currentTimeMillis();
+
+        // 1. Every judge image must be available locally, otherwise we cannot judge at all
+        List<String> missing = missingImages();
+        if (!missing.isEmpty()) {
+            lastError = "Missing judge images: " + missing;
+            LOGGER.error("{}, retrying warmup in {}ms", lastError, retryMs);
+            warmupScheduler.schedule(this::warmUp, Instant.now().plusMillis(retryMs));
+            return;
+        }
+
+        // 2. One dummy judgement per language; a single failing language is logged but doesn't
+        // hold back capacity, while none passing means the sandbox itself is broken
+        List<String> passed = new ArrayList<>();
+        WARMUP_SOURCES.forEach((language, source) -> {
+            try {
+                JudgeResult result = sandboxService.run("warmup", source, language, WARMUP_INPUT, 10, 256);
+                if (Constants.DOCKER_SUCCESS.equals(result.status()) && WARMUP_INPUT.equals(result.output())) {
+                    LOGGER.info("Warmup judgement for {} passed in {}ms", language, result.executionTimeMs());
+                    passed.add(language);
+                } else {
+                    LOGGER.warn("Warmup judgement for {} returned {}: {}", language, result.status(), result.output());
+                }
+            } catch (Exception e) {
+                LOGGER.warn("Warmup judgement for {} failed: {}", language, e.getMessage());
+            }
+        });
+        if (passed.isEmpty()) {
+            lastError = "No warmup judgement passed";
+            LOGGER.error("{}, retrying warmup in {}ms", lastError, retryMs);
+            warmupScheduler.schedule(this::warmUp, Instant.now().plusMillis(retryMs));
+            return;
+        }
+
+        LOGGER.info("Worker warmed up in {}ms ({} of {} languages passed)",
+                    System.currentTimeMillis() - start, passed.size(), WARMUP_SOURCES.size());
+        markWarm();
+    }
+
+    private List<String> missingImages() {
+        Map<String, String> images = new LinkedHashMap<>();
+        WARMUP_SOURCES.keySet().forEach(language -> images.put(language, languageStrategy.getDockerImage(language)));
+
+        List<String> missing = new ArrayList<>();
+        images.forEach((language, image) -> {
+            try {
+                dockerClient.inspectImageCmd(image).exec();
+            } catch (NotFoundException e) {
+                missing.add(image);
+            } catch (Exception e) {
+                LOGGER.warn("Failed to inspect image {}: {}", image, e.getMessage());
+                missing.add(image);
+            }
+        });
+        return missing;
+    }
+
+    private void markWarm() {
+        warm = true;
+        lastError = null;
+
+        // Consumers only start once the readiness probe reports warm
+        startListener(RabbitMQConsumer.TEST_LISTENER_ID);
+        startListener(submissionListenerId);
+    }
+
+    /**
+     * The submission listener for the configured mode, or the other one if only that was
+     * registered (an AOT image built for the other mode).
+     */
+    private String resolveSubmissionListener() {
+        String wanted = batchEnabled ? BatchSubmissionConsumer.LISTENER_ID : RabbitMQConsumer.SUBMISSION_LISTENER_ID;
+        String other = batchEnabled ? RabbitMQConsumer.SUBMISSION_LISTENER_ID : BatchSubmissionConsumer.LISTENER_ID;
+        if (listenerRegistry.getListenerContainer(wanted) != null) {
+            return wanted;
+        }
+        if (listenerRegistry.getListenerContainer(other) != null) {
+            LOGGER.warn("rabbitmq.consumer.batch.enabled={} but only listener {} is registered; the consumer mode "
+                    + "of an AOT build is fixed when it is built, using {}", batchEnabled, other, other);
+            return other;
+        }
+        throw new IllegalStateException("No submission listener registered (" + wanted + " or " + other + ")");
+    }
+
+    private void startListener(String id) {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(id);
+        if (container == null) {
+            throw new IllegalStateException("No listener container registered with id " + id);
+        }
+        if (!container.isRunning()) {
+            container.start();
+            LOGGER.info("Started consumer {}", id);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.judge.workerservice.service;
+
+/**
+ * Reads the number of ready messages in a broker queue.
+ */
+public interface QueueDepthProbe {
+
+    long depth(String queue);
+}
@@ -12,18 +12,25 @@ import org.springframework.stereotype.Service;
 public class RabbitMQConsumer {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RabbitMQConsumer.class);
+    public static final String SUBMISSION_LISTENER_ID = "submissionListener";
+    public static final String TEST_LISTENER_ID = "testSubmissionListener";
     private final JudgeService judgeService;
+    private final InFlightDeliveries inFlightDeliveries;
 
     @Autowired
-    public RabbitMQConsumer(JudgeService judgeService) {
+    public RabbitMQConsumer(JudgeService judgeService, InFlightDeliveries inFlightDeliveries) {
         this.judgeService = judgeService;
+        this.inFlightDeliveries = inFlightDeliveries;
     }
 
-    @RabbitListener(queues = {"${rabbitmq.queue.submission}"})
+    // Started by JudgeWarmup; replaced by BatchSubmissionConsumer when batch mode is enabled
+    @RabbitListener(id = SUBMISSION_LISTENER_ID, queues = {"${rabbitmq.queue.submission}"},
+                    autoStartup = "false")
     public void consumeSubmission(SubmissionJob job) {
         // Add submission ID to logging context
         MDC.put("submissionId", job.submissionId());
         MDC.put("problemId", job.problemId());
+        inFlightDeliveries.received(1);
         
         LOGGER.info("Received submission job for language: {}", job.language());
         
@@ -34,13 +41,16 @@ public class RabbitMQConsumer {
             LOGGER.error("Failed to process submission: {}", e.getMessage(), e);
             judgeService.updateSubmissionStatusToError(job.submissionId(), "Internal Judge Error: " + e.getMessage());
         } finally {
+            inFlightDeliveries.settled();
             MDC.clear();
         }
     }
     
-    @RabbitListener(queues = {"${rabbitmq.queue.test}"})
+    @RabbitListener(id = TEST_LISTENER_ID, queues = {"${rabbitmq.queue.test}"},
+                    autoStartup = "false")
     public void consumeTestSubmission(SubmissionJob job) {
         MDC.put("submissionId", job.submissionId());
+        inFlightDeliveries.received(1);
         LOGGER.info("Received test submission job");
         
         try {
@@ -50,6 +60,7 @@ public class RabbitMQConsumer {
         } catch (Exception e) {
             LOGGER.error("Failed to process test submission: {}", e.getMessage(), e);
         } finally {
+            inFlightDeliveries.settled();
             MDC.clear();
         }
     }
@@ -0,0 +1,25 @@
+package com.judge.workerservice.service;
+
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Queue depth from a passive declare on the RabbitTemplate's connection; needs no management plugin.
+ */
+@Component
+public class RabbitQueueDepthProbe implements QueueDepthProbe {
+
+    private final RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    public RabbitQueueDepthProbe(RabbitTemplate rabbitTemplate) {
+        this.rabbitTemplate = rabbitTemplate;
+    }
+
+    @Override
+    public long depth(String queue) {
+        Integer count = rabbitTemplate.execute(channel -> channel.queueDeclarePassive(queue).getMessageCount());
+        return count != null ? count : 0;
+    }
+}
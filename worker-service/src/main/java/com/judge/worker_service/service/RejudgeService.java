@@ -0,0 +1,327 @@
+package com.judge.workerservice.service;
+
+import com.judge.workerservice.domain.Problem;
+import com.judge.workerservice.domain.Submission;
+import com.judge.workerservice.domain.SubmissionVerdict;
+import com.judge.workerservice.dto.RejudgeProgress;
+import com.judge.workerservice.dto.RejudgeRequest;
+import com.judge.workerservice.repository.ProblemRepository;
+import com.judge.workerservice.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rejudges all submissions of a problem after its test data changed. Submissions are read from
+ * Mongo one page at a time in {@code _id} order, identical sources are judged once and the verdict is fanned out, and
+ * work only proceeds while live judging on this worker is below a threshold.
+ */
+@Service
+public class RejudgeService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RejudgeService.class);
+
+    public static final String STATE_RUNNING = "RUNNING";
+    public static final String STATE_COMPLETED = "COMPLETED";
+    public static final String STATE_CANCELLED = "CANCELLED";
+    public static final String STATE_FAILED = "FAILED";
+
+    private final MongoTemplate mongoTemplate;
+    private final ProblemRepository problemRepository;
+    private final JudgeService judgeService;
+    private final StatsService statsService;
+    private final Executor rejudgeExecutor;
+    private final Executor rejudgeWorkerExecutor;
+
+    private final Map<String, RejudgeJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${rejudge.batch.size:200}")
+    private int batchSize;
+
+    @Value("${rejudge.cache.size:1000}")
+    private int verdictCacheSize;
+
+    @Value("${rejudge.yield.live.threshold:2}")
+    private int liveThreshold;
+
+    @Value("${rejudge.yield.sleep.ms:500}")
+    private long yieldSleepMs;
+
+    @Value("${rejudge.retention.ms:3600000}")
+    private long retentionMs;
+
+    @Autowired
+    public RejudgeService(
+            MongoTemplate mongoTemplate,
+            ProblemRepository problemRepository,
+            JudgeService judgeService,
+            StatsService statsService,
+            @Qualifier("rejudgeExecutor") Executor rejudgeExecutor,
+            @Qualifier("rejudgeWorkerExecutor") Executor rejudgeWorkerExecutor) {
+        this.mongoTemplate = mongoTemplate;
+        this.problemRepository = problemRepository;
+        this.judgeService = judgeService;
+        this.statsService = statsService;
+        this.rejudgeExecutor = rejudgeExecutor;
+        this.rejudgeWorkerExecutor = rejudgeWorkerExecutor;
+    }
+
+    public RejudgeProgress start(RejudgeRequest request) {
+        Problem problem = problemRepository.findById(request.problemId())
+                .orElseThrow(() -> new IllegalArgumentException("Problem not found: " + request.problemId()));
+
+        pruneFinished();
+        RejudgeJob job = new RejudgeJob(UUID.randomUUID().toString(), problem.getId());
+        jobs.put(job.id, job);
+        try {
+            rejudgeExecutor.execute(() -> run(job, problem, request));
+        } catch (RejectedExecutionException e) {
+            // Queue full: the request is refused, so the job must not linger as RUNNING
+            jobs.remove(job.id);
+            LOGGER.warn("Rejected rejudge for problem {}: too many rejudges queued", problem.getId());
+            throw e;
+        }
+
+        LOGGER.info("Started rejudge {} for problem {}", job.id, problem.getId());
+        return job.progress();
+    }
+
+    public Optional<RejudgeProgress> progress(String rejudgeId) {
+        pruneFinished();
+        return Optional.ofNullable(jobs.get(rejudgeId)).map(RejudgeJob::progress);
+    }
+
+    public List<RejudgeProgress> allProgress() {
+        pruneFinished();
+        return jobs.values().stream().map(RejudgeJob::progress).toList();
+    }
+
+    public boolean cancel(String rejudgeId) {
+        RejudgeJob job = jobs.get(rejudgeId);
+        if (job == null) {
+            return false;
+        }
+        job.cancelled = true;
+        return true;
+    }
+
+    private void run(RejudgeJob job, Problem problem, RejudgeRequest request) {
+        Map<String, SubmissionVerdict> verdictCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SubmissionVerdict> eldest) {
+                return size() > verdictCacheSize;
+            }
+        };
+
+        try {
+            // A fresh query per page instead of one long cursor: judging a page can outlast the
+            // cursor timeout, and status updates must not move submissions around in the scan
+            String lastId = null;
+            while (!job.cancelled) {
+                List<Submission> batch = mongoTemplate.find(buildQuery(request, lastId), Submission.class);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                job.scanned.addAndGet(batch.size());
+                lastId = batch.get(batch.size() - 1).getId();
+                processBatch(job, problem, batch, verdictCache);
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+            job.finish(job.cancelled ? STATE_CANCELLED : STATE_COMPLETED, null);
+        } catch (Exception e) {
+            LOGGER.error("Rejudge {} failed: {}", job.id, e.getMessage(), e);
+            job.finish(STATE_FAILED, e.getMessage());
+        }
+
+        LOGGER.info("Rejudge {} {}: {} rejudged, {} distinct sources, {} verdicts changed",
+                job.id, job.state, job.rejudged.get(), job.distinctSources.get(), job.changed.get());
+    }
+
+    /**
+     * The page of matching submissions after {@code lastId}, served by the (problem_id, _id) index.
+     */
+    private Query buildQuery(RejudgeRequest request, String lastId) {
+        Criteria criteria = Criteria.where("problemId").is(request.problemId())
+                .and("testRun").ne(true);
+        if (lastId != null) {
+            criteria.and("_id").gt(lastId);
+        }
+
+        if (request.statuses() != null && !request.statuses().isEmpty()) {
+            criteria.and("status").in(request.statuses());
+        } else {
+            // In-flight submissions are judged against the new data anyway
+            criteria.and("status").nin(Constants.STATUS_PENDING, Constants.STATUS_JUDGING);
+        }
+        if (request.languages() != null && !request.languages().isEmpty()) {
+            criteria.and("language").in(request.languages());
+        }
+        if (request.submittedAfter() != null || request.submittedBefore() != null) {
+            Criteria createdAt = criteria.and("createdAt");
+            if (request.submittedAfter() != null) {
+                createdAt.gte(request.submittedAfter());
+            }
+            if (request.submittedBefore() != null) {
+                createdAt.lt(request.submittedBefore());
+            }
+        }
+
+        return Query.query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(batchSize);
+    }
+
+    /**
+     * Groups a batch by identical source and judges the groups in parallel on the rejudge worker pool.
+     */
+    private void processBatch(RejudgeJob job, Problem problem, List<Submission> batch,
+                              Map<String, SubmissionVerdict> verdictCache) {
+        Map<String, List<Submission>> groups = new LinkedHashMap<>();
+        for (Submission submission : batch) {
+            groups.computeIfAbsent(sourceKey(submission), key -> new ArrayList<>()).add(submission);
+        }
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(groups.size());
+        groups.forEach((key, group) -> tasks.add(CompletableFuture.runAsync(
+                () -> rejudgeGroup(job, problem, key, group, verdictCache), rejudgeWorkerExecutor)));
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+    }
+
+    private void rejudgeGroup(RejudgeJob job, Problem problem, String key, Collection<Submission> group,
+                              Map<String, SubmissionVerdict> verdictCache) {
+        if (!awaitIdle(job)) {
+            return;
+        }
+
+        Submission first = group.iterator().next();
+        try {
+            SubmissionVerdict verdict;
+            synchronized (verdictCache) {
+                verdict = verdictCache.get(key);
+            }
+            if (verdict == null) {
+                int timeLimit = problem.getTimeLimit() != null ? problem.getTimeLimit() : 5;
+                int memoryLimit = problem.getMemoryLimit() != null ? problem.getMemoryLimit() : 256;
+                verdict = judgeService.judge(problem, first.getId(), first.getLanguage(), first.getSourceCode(),
+                        timeLimit, memoryLimit);
+                job.distinctSources.incrementAndGet();
+
+                // Never overwrite a real verdict because the judge itself failed
+                if (Constants.STATUS_INTERNAL_ERROR.equals(verdict.status())) {
+                    job.failures.addAndGet(group.size());
+                    return;
+                }
+                synchronized (verdictCache) {
+                    verdictCache.put(key, verdict);
+                }
+            }
+
+            for (Submission submission : group) {
+                String previousStatus = submission.getStatus();
+                judgeService.applyVerdict(submission, verdict);
+                statsService.recordRejudge(submission, problem, previousStatus);
+                job.rejudged.incrementAndGet();
+                if (!verdict.status().equals(previousStatus)) {
+                    job.changed.incrementAndGet();
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Rejudge {} failed for submission {}: {}", job.id, first.getId(), e.getMessage());
+            job.failures.addAndGet(group.size());
+        }
+    }
+
+    /**
+     * Forgets jobs that finished longer than rejudge.retention.ms ago.
+     */
+    private void pruneFinished() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(retentionMs));
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    /**
+     * Yields to live traffic: waits while this worker is busy with queued submissions.
+     */
+    private boolean awaitIdle(RejudgeJob job) {
+        while (!job.cancelled && judgeService.activeJudgements() >= liveThreshold) {
+            try {
+                Thread.sleep(yieldSleepMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return !job.cancelled;
+    }
+
+    private static String sourceKey(Submission submission) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(submission.getLanguage()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(submission.getSourceCode()).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class RejudgeJob {
+        private final String id;
+        private final String problemId;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong scanned = new AtomicLong();
+        private final AtomicLong rejudged = new AtomicLong();
+        private final AtomicLong distinctSources = new AtomicLong();
+        private final AtomicLong changed = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile String state = STATE_RUNNING;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        RejudgeJob(String id, String problemId) {
+            this.id = id;
+            this.problemId = problemId;
+        }
+
+        void finish(String finalState, String errorMessage) {
+            this.error = errorMessage;
+            this.finishedAt = LocalDateTime.now();
+            this.state = finalState;
+        }
+
+        RejudgeProgress progress() {
+            return new RejudgeProgress(id, problemId, state, scanned.get(), rejudged.get(),
+                    distinctSources.get(), changed.get(), failures.get(), startedAt, finishedAt, error);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.judge.workerservice.service;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.model.Container;
+import com.judge.workerservice.config.WorkerInstance;
+import com.judge.workerservice.domain.Problem;
+import com.judge.workerservice.domain.Submission;
+import com.judge.workerservice.domain.WorkerHeartbeat;
+import com.judge.workerservice.dto.SubmissionJob;
+import com.judge.workerservice.repository.ProblemRepository;
+import com.judge.workerservice.repository.SubmissionRepository;
+import com.judge.workerservice.repository.WorkerHeartbeatRepository;
+import com.judge.workerservice.util.Constants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reclaims sandbox resources leaked by crashed workers or failed cleanups: labelled containers,
+ * {@code judge-*} workspaces, and submissions stuck in "Judging" on a worker that is gone.
+ */
+@Service
+public class SandboxReaper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SandboxReaper.class);
+
+    private final DockerClient dockerClient;
+    private final DockerSandboxService sandboxService;
+    private final SpecialJudgeService specialJudgeService;
+    private final WorkerInstance workerInstance;
+    private final WorkerHeartbeatRepository heartbeatRepository;
+    private final SubmissionRepository submissionRepository;
+    private final ProblemRepository problemRepository;
+    private final MongoTemplate mongoTemplate;
+    private final RabbitTemplate rabbitTemplate;
+    private final InFlightDeliveries inFlightDeliveries;
+
+    private final AtomicLong leakedContainers = new AtomicLong();
+    private final AtomicLong leakedWorkspaces = new AtomicLong();
+    private final Counter reapedContainers;
+    private final Counter reapedWorkspaces;
+    private final Counter requeuedSubmissions;
+
+    @Value("${rabbitmq.queue.submission}")
+    private String submissionQueue;
+
+    @Value("${worker.heartbeat.timeout.ms:60000}")
+    private long heartbeatTimeoutMs;
+
+    @Value("${sandbox.reaper.min.age.seconds:120}")
+    private long minAgeSeconds;
+
+    @Autowired
+    public SandboxReaper(
+            DockerClient dockerClient,
+            DockerSandboxService sandboxService,
+            SpecialJudgeService specialJudgeService,
+            WorkerInstance workerInstance,
+            WorkerHeartbeatRepository heartbeatRepository,
+            SubmissionRepository submissionRepository,
+            ProblemRepository problemRepository,
+            MongoTemplate mongoTemplate,
+            RabbitTemplate rabbitTemplate,
+            InFlightDeliveries inFlightDeliveries,
+            MeterRegistry meterRegistry) {
+        this.dockerClient = dockerClient;
+        this.sandboxService = sandboxService;
+        this.specialJudgeService = specialJudgeService;
+        this.workerInstance = workerInstance;
+        this.heartbeatRepository = heartbeatRepository;
+        this.submissionRepository = submissionRepository;
+        this.problemRepository = problemRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.rabbitTemplate = rabbitTemplate;
+        this.inFlightDeliveries = inFlightDeliveries;
+
+        meterRegistry.gauge("judge.sandbox.leaked.containers", leakedContainers);
+        meterRegistry.gauge("judge.sandbox.leaked.workspaces", leakedWorkspaces);
+        meterRegistry.gauge("judge.sandbox.active", sandboxService, DockerSandboxService::activeSandboxCount);
+        this.reapedContainers = Counter.builder("judge.sandbox.reaped.containers").register(meterRegistry);
+        this.reapedWorkspaces = Counter.builder("judge.sandbox.reaped.workspaces").register(meterRegistry);
+        this.requeuedSubmissions = Counter.builder("judge.submissions.requeued").register(meterRegistry);
+    }
+
+    @Scheduled(fixedRateString = "${worker.heartbeat.interval.ms:10000}")
+    public void heartbeat() {
+        try {
+            heartbeatRepository.save(new WorkerHeartbeat(workerInstance.getId(), hostName(), LocalDateTime.now(),
+                    inFlightDeliveries.count()));
+        } catch (Exception e) {
+            LOGGER.warn("Failed to record worker heartbeat: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Runs once at startup and then periodically.
+     */
+    @Scheduled(fixedDelayString = "${sandbox.reaper.interval.ms:60000}")
+    public void reap() {
+        Set<String> liveWorkers = liveWorkers();
+
+        reapContainers(liveWorkers);
+        reapWorkspaces(liveWorkers);
+        requeueOrphanedSubmissions(liveWorkers);
+        pruneHeartbeats();
+    }
+
+    /**
+     * Worker ids change on every boot, so heartbeats of dead workers are deleted, and the
+     * liveness lookup by last_seen gets an index.
+     */
+    @PostConstruct
+    public void ensureHeartbeatIndex() {
+        try {
+            mongoTemplate.indexOps(WorkerHeartbeat.class).ensureIndex(new Index().on("last_seen", Sort.Direction.ASC));
+        } catch (Exception e) {
+            LOGGER.warn("Failed to create worker heartbeat index: {}", e.getMessage());
+        }
+    }
+
+    private void pruneHeartbeats() {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(heartbeatTimeoutMs));
+            long deleted = mongoTemplate.remove(Query.query(Criteria.where("lastSeen").lt(cutoff)),
+                    WorkerHeartbeat.class).getDeletedCount();
+            if (deleted > 0) {
+                LOGGER.info("Deleted {} heartbeats of dead workers", deleted);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Failed to delete stale worker heartbeats: {}", e.getMessage());
+        }
+    }
+
+    private Set<String> liveWorkers() {
+        Set<String> live = new HashSet<>();
+        live.add(workerInstance.getId());
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(heartbeatTimeoutMs));
+            heartbeatRepository.findByLastSeenAfter(cutoff).forEach(heartbeat -> live.add(heartbeat.getId()));
+        } catch (Exception e) {
+            LOGGER.warn("Failed to load worker heartbeats: {}", e.getMessage());
+        }
+        return live;
+    }
+
+    private void reapContainers(Set<String> liveWorkers) {
+        List<Container> containers;
+        try {
+            containers = dockerClient.listContainersCmd()
+                    .withShowAll(true)
+                    .withLabelFilter(Map.of(Constants.LABEL_SANDBOX, "true"))
+                    .exec();
+        } catch (Exception e) {
+            LOGGER.warn("Failed to list sandbox containers: {}", e.getMessage());
+            return;
+        }
+
+        long nowSeconds = System.currentTimeMillis() / 1000;
+        long leaked = 0;
+
+        for (Container container : containers) {
+            if (sandboxService.isActiveContainer(container.getId())
+                    || specialJudgeService.isActiveContainer(container.getId())) {
+                continue;
+            }
+            long ageSeconds = container.getCreated() != null ? nowSeconds - container.getCreated() : Long.MAX_VALUE;
+            String owner = container.getLabels() != null ? container.getLabels().get(Constants.LABEL_WORKER) : null;
+            if (!isOrphaned(owner, ageSeconds, liveWorkers)) {
+                continue;
+            }
+
+            leaked++;
+            try {
+                // Force removal kills the container if it is still running
+                dockerClient.removeContainerCmd(container.getId())
+                        .withForce(true)
+                        .withRemoveVolumes(true)
+                        .exec();
+                reapedContainers.increment();
+                LOGGER.info("Reaped orphaned container {} (worker: {}, submission: {})", container.getId(), owner,
+                        container.getLabels() != null ? container.getLabels().get(Constants.LABEL_SUBMISSION) : null);
+            } catch (Exception e) {
+                LOGGER.warn("Failed to reap container {}: {}", container.getId(), e.getMessage());
+            }
+        }
+
+        leakedContainers.set(leaked);
+    }
+
+    private void reapWorkspaces(Set<String> liveWorkers) {
+        Path tempRoot = Paths.get(System.getProperty("java.io.tmpdir"));
+        long nowMillis = System.currentTimeMillis();
+        long leaked = 0;
+
+        try (DirectoryStream<Path> workspaces =
+                     Files.newDirectoryStream(tempRoot, DockerSandboxService.WORKSPACE_PREFIX + "*")) {
+            for (Path workspace : workspaces) {
+                if (!Files.isDirectory(workspace) || sandboxService.isActiveWorkspace(workspace)
+                        || specialJudgeService.isActiveWorkspace(workspace)) {
+                    continue;
+                }
+                long ageSeconds = (nowMillis - Files.getLastModifiedTime(workspace).toMillis()) / 1000;
+                if (!isOrphaned(workspaceOwner(workspace), ageSeconds, liveWorkers)) {
+                    continue;
+                }
+
+                leaked++;
+                try {
+                    FileUtils.deleteDirectory(workspace.toFile());
+                    reapedWorkspaces.increment();
+                    LOGGER.info("Reaped orphaned workspace {}", workspace);
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to reap workspace {}: {}", workspace, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to scan workspaces in {}: {}", tempRoot, e.getMessage());
+            return;
+        }
+
+        leakedWorkspaces.set(leaked);
+    }
+
+    /**
+     * Resets submissions left in "Judging" by a dead worker and puts them back on the queue.
+     */
+    private void requeueOrphanedSubmissions(Set<String> liveWorkers) {
+        List<Submission> orphaned;
+        try {
+            orphaned = submissionRepository.findByStatusClaimedByOtherWorkers(Constants.STATUS_JUDGING, liveWorkers);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to query orphaned submissions: {}", e.getMessage());
+            return;
+        }
+
+        for (Submission submission : orphaned) {
+            try {
+                // Publish only if our conditional reset matched. Workers claim Pending -> Judging
+                // conditionally too, so of this copy and a broker redelivery of the original
+                // message exactly one gets judged.
+                Query claim = Query.query(Criteria.where("_id").is(submission.getId())
+                        .and("status").is(Constants.STATUS_JUDGING)
+                        .and("worker_id").is(submission.getWorkerId()));
+                Update reset = new Update()
+                        .set("status", Constants.STATUS_PENDING)
+                        .unset("worker_id");
+                if (mongoTemplate.updateFirst(claim, reset, Submission.class).getModifiedCount() == 0) {
+                    continue;
+                }
+
+                rabbitTemplate.convertAndSend(submissionQueue, toJob(submission));
+                requeuedSubmissions.increment();
+                LOGGER.info("Requeued submission {} abandoned by worker {}", submission.getId(), submission.getWorkerId());
+            } catch (Exception e) {
+                LOGGER.warn("Failed to requeue submission {}: {}", submission.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private SubmissionJob toJob(Submission submission) {
+        Problem problem = submission.getProblemId() != null
+                ? problemRepository.findById(submission.getProblemId()).orElse(null)
+                : null;
+        int timeLimit = problem != null && problem.getTimeLimit() != null ? problem.getTimeLimit() : 5;
+        int memoryLimit = problem != null && problem.getMemoryLimit() != null ? problem.getMemoryLimit() : 256;
+
+        return new SubmissionJob(
+                submission.getId(),
+                submission.getProblemId(),
+                submission.getSourceCode(),
+                submission.getLanguage(),
+                timeLimit,
+                memoryLimit
+        );
+    }
+
+    private boolean isOrphaned(String owner, long ageSeconds, Set<String> liveWorkers) {
+        if (ageSeconds < minAgeSeconds) {
+            return false;
+        }
+        // Unlabelled resources and our own inactive ones are leaked; others only once their worker is gone
+        return owner == null || owner.equals(workerInstance.getId()) || !liveWorkers.contains(owner);
+    }
+
+    /**
+     * Workspace directories are named {@code judge-<workerId>_<submissionId>_<random>}.
+     */
+    private String workspaceOwner(Path workspace) {
+        String name = workspace.getFileName().toString().substring(DockerSandboxService.WORKSPACE_PREFIX.length());
+        String[] parts = name.split("_");
+        return parts.length >= 3 ? parts[0] : null;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
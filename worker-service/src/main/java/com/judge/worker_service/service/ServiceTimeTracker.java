@@ -0,0 +1,87 @@
+package com.judge.workerservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sliding window of recent per-language service times (time spent in sandbox containers, not
+ * waiting for a slot), used to estimate how long a queued job will occupy a slot and how fast
+ * this worker is completing jobs.
+ */
+@Component
+public class ServiceTimeTracker {
+
+    private static final int MAX_SAMPLES = 10_000;
+
+    private final Clock clock;
+    private final long startedAt;
+    private final Deque<Sample> samples = new ArrayDeque<>();
+
+    @Value("${autoscaling.window.seconds:300}")
+    private long windowSeconds;
+
+    public ServiceTimeTracker() {
+        this(Clock.systemUTC());
+    }
+
+    ServiceTimeTracker(Clock clock) {
+        this.clock = clock;
+        this.startedAt = clock.millis();
+    }
+
+    public synchronized void record(String language, long durationMs) {
+        long now = clock.millis();
+        samples.addLast(new Sample(now, language != null ? language : "unknown", durationMs));
+        while (samples.size() > MAX_SAMPLES) {
+            samples.removeFirst();
+        }
+        evict(now);
+    }
+
+    public synchronized Snapshot snapshot() {
+        long now = clock.millis();
+        evict(now);
+
+        Map<String, long[]> perLanguage = new HashMap<>();
+        long totalMs = 0;
+        for (Sample sample : samples) {
+            long[] stats = perLanguage.computeIfAbsent(sample.language(), key -> new long[2]);
+            stats[0]++;
+            stats[1] += sample.durationMs();
+            totalMs += sample.durationMs();
+        }
+
+        Map<String, Double> meanMs = new HashMap<>();
+        perLanguage.forEach((language, stats) -> meanMs.put(language, (double) stats[1] / stats[0]));
+
+        // Mean over all samples is the mix-weighted mean of the per-language means
+        double overallMeanMs = samples.isEmpty() ? 0 : (double) totalMs / samples.size();
+        // A freshly started worker has not observed a full window yet
+        double seconds = Math.max(1, Math.min(windowSeconds, (now - startedAt) / 1000.0));
+        return new Snapshot(samples.size(), overallMeanMs, samples.size() / seconds, meanMs);
+    }
+
+    private void evict(long now) {
+        long cutoff = now - windowSeconds * 1000;
+        while (!samples.isEmpty() && samples.peekFirst().timestamp() < cutoff) {
+            samples.removeFirst();
+        }
+    }
+
+    private record Sample(long timestamp, String language, long durationMs) {}
+
+    /**
+     * @param samples           judgements completed within the window
+     * @param meanServiceTimeMs mean judgement time over the recent language mix, 0 without samples
+     * @param completionRate    judgements completed per second by this worker
+     * @param meanByLanguageMs  mean judgement time per language
+     */
+    public record Snapshot(int samples, double meanServiceTimeMs, double completionRate,
+                           Map<String, Double> meanByLanguageMs) {}
+}
@@ -0,0 +1,292 @@
+package com.judge.workerservice.service;
+
+import com.github.dockerjava.api.DockerClient;
+import com.judge.workerservice.config.WorkerInstance;
+import com.judge.workerservice.domain.Checker;
+import com.judge.workerservice.domain.Problem;
+import com.judge.workerservice.service.CheckerProcess.CheckerVerdict;
+import com.judge.workerservice.util.Constants;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validates outputs with a problem's special judge. Each checker is compiled once into its pool's
+ * workspace and run by a small per-problem pool of long-lived sandboxed processes sharing the
+ * binary, so a check costs a round trip over a pipe instead of a container start.
+ */
+@Service
+public class SpecialJudgeService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpecialJudgeService.class);
+    // How often a check waiting for a busy pool looks again, in case a checker died instead
+    private static final long BORROW_POLL_MS = 1000;
+
+    private final DockerClient dockerClient;
+    private final LanguageExecutionStrategy languageStrategy;
+    private final WorkerInstance workerInstance;
+    private final CpuSlotScheduler slotScheduler;
+
+    private final Map<String, CheckerPool> pools = new ConcurrentHashMap<>();
+    private final Set<String> activeContainers = ConcurrentHashMap.newKeySet();
+    private final Set<Path> activeWorkspaces = ConcurrentHashMap.newKeySet();
+
+    @Value("${judge.checker.pool.size:2}")
+    private int poolSize;
+
+    @Value("${judge.checker.timeout.ms:5000}")
+    private long checkTimeoutMs;
+
+    @Value("${judge.checker.startup.timeout.ms:30000}")
+    private long startupTimeoutMs;
+
+    @Value("${judge.checker.memory:256}")
+    private int memoryLimitMb;
+
+    @Value("${judge.checker.idle.ms:600000}")
+    private long idleTimeoutMs;
+
+    @Value("${judge.checker.failure.backoff.ms:60000}")
+    private long failureBackoffMs;
+
+    @Autowired
+    public SpecialJudgeService(DockerClient dockerClient,
+                               LanguageExecutionStrategy languageStrategy,
+                               WorkerInstance workerInstance,
+                               CpuSlotScheduler slotScheduler) {
+        this.dockerClient = dockerClient;
+        this.languageStrategy = languageStrategy;
+        this.workerInstance = workerInstance;
+        this.slotScheduler = slotScheduler;
+    }
+
+    public boolean hasChecker(Problem problem) {
+        Checker checker = problem.getChecker();
+        return checker != null && checker.getSourceCode() != null && !checker.getSourceCode().isBlank();
+    }
+
+    /**
+     * Throws if the checker cannot give a verdict; that is a judge error, never a wrong answer.
+     * While every checker of the pool is busy the check waits for one, but not past {@code deadline}
+     * (epoch millis), the judgement's own deadline.
+     */
+    public CheckerVerdict check(Problem problem, String input, String expected, String actual, long deadline)
+            throws IOException {
+        Checker checker = problem.getChecker();
+        String language = checker.getLanguage() != null ? checker.getLanguage().toLowerCase() : "cpp";
+        if (!language.equals("cpp") && !language.equals("c++")) {
+            throw new IOException("Unsupported checker language: " + checker.getLanguage());
+        }
+
+        // Keyed by a digest of the source too, so an updated checker always gets a fresh pool
+        String key = problem.getId() + ":" + sourceDigest(checker.getSourceCode());
+        CheckerPool pool = pools.computeIfAbsent(key, k -> new CheckerPool(problem.getId(), checker.getSourceCode()));
+
+        CheckerProcess process = pool.borrow(deadline);
+        try {
+            return process.check(input, expected, actual, checkTimeoutMs);
+        } finally {
+            pool.release(process);
+        }
+    }
+
+    private static String sourceDigest(String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public boolean isActiveContainer(String containerId) {
+        return activeContainers.contains(containerId);
+    }
+
+    public boolean isActiveWorkspace(Path workspace) {
+        return activeWorkspaces.contains(workspace);
+    }
+
+    /**
+     * Shuts down pools of problems that have not been judged recently.
+     */
+    @Scheduled(fixedDelayString = "${judge.checker.eviction.interval.ms:60000}")
+    public void evictIdlePools() {
+        long now = System.currentTimeMillis();
+        pools.entrySet().removeIf(entry -> {
+            if (now - entry.getValue().lastUsed < idleTimeoutMs) {
+                return false;
+            }
+            LOGGER.info("Closing idle checker pool for problem {}", entry.getValue().problemId);
+            entry.getValue().close();
+            return true;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pools.values().forEach(CheckerPool::close);
+        pools.clear();
+    }
+
+    private Path createWorkspace(String problemId, String source) throws IOException {
+        Path workspace = Files.createTempDirectory(DockerSandboxService.WORKSPACE_PREFIX
+                + workerInstance.getId() + "_" + Constants.ROLE_CHECKER + "-" + problemId + "_");
+        activeWorkspaces.add(workspace);
+        Files.writeString(workspace.resolve("checker.cpp"), source);
+        return workspace;
+    }
+
+    private void deleteWorkspace(Path workspace) {
+        try {
+            FileUtils.deleteDirectory(workspace.toFile());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete checker workspace {}: {}", workspace, e.getMessage());
+        }
+        activeWorkspaces.remove(workspace);
+    }
+
+    private CheckerProcess startProcess(Path workspace) throws IOException {
+        Map<String, String> labels = Map.of(
+                Constants.LABEL_SANDBOX, "true",
+                Constants.LABEL_WORKER, workerInstance.getId(),
+                Constants.LABEL_ROLE, Constants.ROLE_CHECKER
+        );
+        CheckerProcess process = CheckerProcess.start(dockerClient, languageStrategy.getDockerImage("cpp"),
+                workspace, labels, memoryLimitMb, slotScheduler.sharedCpus(), startupTimeoutMs);
+        activeContainers.add(process.getContainerId());
+        return process;
+    }
+
+    private void stopProcess(CheckerProcess process) {
+        process.close();
+        activeContainers.remove(process.getContainerId());
+    }
+
+    private final class CheckerPool {
+        private final String problemId;
+        private final String source;
+        private final BlockingQueue<CheckerProcess> idle = new LinkedBlockingQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private volatile long lastUsed = System.currentTimeMillis();
+        private volatile long failedUntil;
+        private volatile String failure;
+        private volatile boolean closed;
+        // Shared by all processes of the pool; holds the source and, once compiled, the binary
+        private Path workspace;
+        private volatile boolean compiled;
+
+        CheckerPool(String problemId, String source) {
+            this.problemId = problemId;
+            this.source = source;
+        }
+
+        CheckerProcess borrow(long deadline) throws IOException {
+            lastUsed = System.currentTimeMillis();
+
+            while (true) {
+                CheckerProcess process = idle.poll();
+                if (process != null) {
+                    return process;
+                }
+
+                // Don't recompile a broken checker on every test case
+                if (System.currentTimeMillis() < failedUntil) {
+                    throw new IOException(failure);
+                }
+
+                if (size.incrementAndGet() <= poolSize) {
+                    try {
+                        return start();
+                    } catch (IOException e) {
+                        size.decrementAndGet();
+                        failure = e.getMessage();
+                        failedUntil = System.currentTimeMillis() + failureBackoffMs;
+                        throw e;
+                    }
+                }
+                size.decrementAndGet();
+
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new IOException("No checker available for problem " + problemId + " within the judgement deadline");
+                }
+                try {
+                    process = idle.poll(Math.min(remaining, BORROW_POLL_MS), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a checker");
+                }
+                if (process != null) {
+                    return process;
+                }
+            }
+        }
+
+        /**
+         * The first process compiles the checker; starts are serialized until it succeeded, so
+         * later processes only run the binary.
+         */
+        private CheckerProcess start() throws IOException {
+            if (compiled && !closed) {
+                return startProcess(workspace);
+            }
+            synchronized (this) {
+                if (closed) {
+                    throw new IOException("Checker pool for problem " + problemId + " is closed");
+                }
+                if (workspace == null) {
+                    workspace = createWorkspace(problemId, source);
+                }
+                CheckerProcess process = startProcess(workspace);
+                compiled = true;
+                return process;
+            }
+        }
+
+        void release(CheckerProcess process) {
+            if (process.isAlive() && !closed) {
+                idle.offer(process);
+                return;
+            }
+            size.decrementAndGet();
+            stopProcess(process);
+        }
+
+        void close() {
+            closed = true;
+            CheckerProcess process;
+            while ((process = idle.poll()) != null) {
+                size.decrementAndGet();
+                stopProcess(process);
+            }
+            // Borrowed processes already run the binary and are stopped when they are released
+            synchronized (this) {
+                if (workspace != null) {
+                    deleteWorkspace(workspace);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.judge.workerservice.service;
+
+import com.judge.workerservice.config.WorkerInstance;
+import com.judge.workerservice.domain.Problem;
+import com.judge.workerservice.domain.Submission;
+import com.judge.workerservice.repository.ProblemRepository;
+import com.judge.workerservice.util.Constants;
+import com.mongodb.client.result.UpdateResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+/**
+ * One-off backfill of problem counters and leaderboard entries from verdicts recorded before the
+ * worker maintained them. Runs once per cluster: a lease on a marker document in
+ * {@code migrations} picks one worker, and the marker is completed when the scan has finished.
+ * Recording a verdict is idempotent, so a scan interrupted by a crash is simply taken over.
+ */
+@Service
+public class StatsBackfill {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatsBackfill.class);
+    static final String COLLECTION = "migrations";
+    static final String MIGRATION_ID = "leaderboard-stats-v1";
+
+    private final MongoTemplate mongoTemplate;
+    private final ProblemRepository problemRepository;
+    private final StatsService statsService;
+    private final WorkerInstance workerInstance;
+    private final Executor backfillExecutor;
+
+    @Value("${stats.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${stats.backfill.lease.ms:300000}")
+    private long leaseMs;
+
+    @Value("${stats.backfill.batch.size:500}")
+    private int batchSize;
+
+    @Autowired
+    public StatsBackfill(MongoTemplate mongoTemplate,
+                         ProblemRepository problemRepository,
+                         StatsService statsService,
+                         WorkerInstance workerInstance,
+                         @Qualifier("backfillExecutor") Executor backfillExecutor) {
+        this.mongoTemplate = mongoTemplate;
+        this.problemRepository = problemRepository;
+        this.statsService = statsService;
+        this.workerInstance = workerInstance;
+        this.backfillExecutor = backfillExecutor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            backfillExecutor.execute(this::run);
+        }
+    }
+
+    void run() {
+        try {
+            if (!claimLease()) {
+                LOGGER.debug("Stats backfill already completed or running elsewhere");
+                return;
+            }
+
+            LOGGER.info("Backfilling problem and leaderboard stats from existing verdicts");
+            long start = System.currentTimeMillis();
+            long recorded = backfill();
+
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(MIGRATION_ID)),
+                    new Update().set("completed", true).set("completed_at", new Date()).unset("lease_until"),
+                    COLLECTION);
+            LOGGER.info("Stats backfill completed: {} submissions in {}ms", recorded, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // The lease runs out and the next worker to start takes over
+            LOGGER.error("Stats backfill failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private long backfill() {
+        Query query = Query.query(Criteria.where("statsRecorded").ne(true)
+                .and("testRun").ne(true)
+                .and("status").nin(Constants.STATUS_PENDING, Constants.STATUS_JUDGING, Constants.STATUS_INTERNAL_ERROR));
+        query.cursorBatchSize(batchSize);
+
+        Map<String, Optional<Problem>> problems = new HashMap<>();
+        long recorded = 0;
+        try (Stream<Submission> submissions = mongoTemplate.stream(query, Submission.class)) {
+            var iterator = submissions.iterator();
+            while (iterator.hasNext()) {
+                Submission submission = iterator.next();
+                Optional<Problem> problem = submission.getProblemId() != null
+                        ? problems.computeIfAbsent(submission.getProblemId(), problemRepository::findById)
+                        : Optional.empty();
+                if (problem.isEmpty()) {
+                    continue;
+                }
+
+                statsService.recordVerdict(submission, problem.get());
+                if (++recorded % batchSize == 0) {
+                    renewLease();
+                    LOGGER.info("Stats backfill: {} submissions recorded", recorded);
+                }
+            }
+        }
+
+        // Counters bumped before the worker kept accepted_counted are only right after a recount
+        problems.forEach((problemId, problem) -> problem.ifPresent(p -> statsService.recountAccepted(problemId)));
+        return recorded;
+    }
+
+    /**
+     * Takes the marker if it is neither completed nor leased by a live backfill.
+     */
+    private boolean claimLease() {
+        Date now = new Date();
+        Query claimable = Query.query(Criteria.where("_id").is(MIGRATION_ID)
+                .and("completed").ne(true)
+                .orOperator(Criteria.where("lease_until").exists(false), Criteria.where("lease_until").lt(now)));
+        Update lease = new Update()
+                .set("owner", workerInstance.getId())
+                .set("lease_until", new Date(now.getTime() + leaseMs));
+        try {
+            UpdateResult result = mongoTemplate.upsert(claimable, lease, COLLECTION);
+            return result.getModifiedCount() > 0 || result.getUpsertedId() != null;
+        } catch (DuplicateKeyException e) {
+            // Completed, or leased by another worker
+            return false;
+        }
+    }
+
+    private void renewLease() {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(MIGRATION_ID).and("owner").is(workerInstance.getId())),
+                new Update().set("lease_until", new Date(System.currentTimeMillis() + leaseMs)),
+                COLLECTION);
+    }
+}
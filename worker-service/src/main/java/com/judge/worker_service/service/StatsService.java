@@ -0,0 +1,303 @@
+package com.judge.workerservice.service;
+
+import com.judge.workerservice.domain.LeaderboardEntry;
+import com.judge.workerservice.domain.Problem;
+import com.judge.workerservice.domain.Submission;
+import com.judge.workerservice.util.Constants;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Maintains materialized problem counters and leaderboard entries as a side effect of
+ * persisting a verdict, so readers never have to aggregate over all submissions.
+ * Every update is keyed on the submission, so recording a verdict again after a crash,
+ * a redelivery or a rejudge never counts it twice: the problem counter through a flag on the
+ * submission, leaderboard entries through one marker per submission and window in
+ * {@code leaderboard_stat_markers}. A flag or marker is claimed before the counter it guards
+ * moves, so a crash in between can only ever leave a count out.
+ */
+@Service
+public class StatsService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatsService.class);
+    static final String MARKERS = "leaderboard_stat_markers";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    public StatsService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public void recordVerdict(Submission submission, Problem problem) {
+        // Internal errors are retried and will be judged again, count only the real verdict
+        if (Constants.STATUS_INTERNAL_ERROR.equals(submission.getStatus())
+                || Boolean.TRUE.equals(submission.getTestRun())
+                || submission.getUserId() == null) {
+            return;
+        }
+
+        try {
+            boolean accepted = Constants.STATUS_ACCEPTED.equals(submission.getStatus());
+
+            // 1. Problem counter (total_submissions is incremented by the API on create)
+            countProblemAccepted(submission.getId(), problem.getId(), accepted);
+
+            // 2. Per-user submission counts for every leaderboard window
+            Map<String, String> windows = windows(submission.getCreatedAt() != null
+                    ? submission.getCreatedAt() : LocalDateTime.now());
+            windows.forEach((period, bucket) -> {
+                String entryId = entryId(submission.getUserId(), period, bucket);
+                String markerId = submission.getId() + ":" + period + ":" + bucket;
+                countSubmission(markerId, entryId, submission.getUserId(), period, bucket);
+                countAccepted(markerId, entryId, accepted);
+            });
+
+            // 3. Solved sets, naturally idempotent
+            if (accepted) {
+                recordSolve(submission.getUserId(), problem, windows);
+            }
+
+            // 4. Marked last: a crash before this point only repeats the idempotent steps above
+            mongoTemplate.updateFirst(byId(submission.getId()), new Update().set("statsRecorded", true), Submission.class);
+            submission.setStatsRecorded(true);
+        } catch (Exception e) {
+            // Stats must never turn a verdict into an internal error
+            LOGGER.warn("Failed to record stats for submission {}: {}", submission.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Adjusts counters after a submission's verdict changed during a rejudge. When an accepted
+     * verdict is taken away, so is the solve, unless another accepted submission still earns it.
+     */
+    public void recordRejudge(Submission submission, Problem problem, String previousStatus) {
+        recordVerdict(submission, problem);
+
+        if (!Constants.STATUS_ACCEPTED.equals(previousStatus)
+                || Constants.STATUS_ACCEPTED.equals(submission.getStatus())
+                || Boolean.TRUE.equals(submission.getTestRun())
+                || submission.getUserId() == null) {
+            return;
+        }
+
+        try {
+            revokeSolve(submission, problem);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to update stats for rejudged submission {}: {}", submission.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the problem from the user's solved set in every window of the submission where none of
+     * their submissions is accepted any more. Conditional on the problem being in the set, so
+     * concurrent rejudges of the same user's submissions revoke it once.
+     */
+    private void revokeSolve(Submission submission, Problem problem) {
+        String userId = submission.getUserId();
+        LocalDateTime createdAt = submission.getCreatedAt() != null ? submission.getCreatedAt() : LocalDateTime.now();
+        String difficultyField = difficultyField(problem.getDifficulty());
+        int weight = weight(problem.getDifficulty());
+
+        windows(createdAt).forEach((period, bucket) -> {
+            Criteria stillAccepted = Criteria.where("userId").is(userId)
+                    .and("problemId").is(problem.getId())
+                    .and("status").is(Constants.STATUS_ACCEPTED)
+                    .and("testRun").ne(true);
+            LocalDateTime[] range = windowRange(period, createdAt);
+            if (range != null) {
+                stillAccepted.and("createdAt").gte(range[0]).lt(range[1]);
+            }
+            if (mongoTemplate.exists(Query.query(stillAccepted), Submission.class)) {
+                return;
+            }
+
+            Query solved = Query.query(Criteria.where("_id").is(entryId(userId, period, bucket))
+                    .and("solved").is(problem.getId()));
+            Update revoke = new Update()
+                    .pull("solved", problem.getId())
+                    .inc("problems_solved", -1)
+                    .inc("score", -weight);
+            if (difficultyField != null) {
+                revoke.inc(difficultyField, -1);
+            }
+
+            if (mongoTemplate.updateFirst(solved, revoke, LeaderboardEntry.class).getModifiedCount() > 0
+                    && Constants.PERIOD_ALL_TIME.equals(period)) {
+                LOGGER.info("Solve of problem {} by user {} revoked by rejudge", problem.getId(), userId);
+            }
+        });
+    }
+
+    /**
+     * Recounts a problem's accepted submissions from scratch, for counters that predate
+     * {@code accepted_counted}. Walks every accepted submission of the problem, so it is meant
+     * to run once per problem after a backfill, never per verdict.
+     */
+    public void recountAccepted(String problemId) {
+        long accepted = mongoTemplate.count(Query.query(Criteria.where("problemId").is(problemId)
+                .and("status").is(Constants.STATUS_ACCEPTED)
+                .and("testRun").ne(true)), Submission.class);
+        mongoTemplate.updateFirst(byId(problemId), new Update().set("accepted_submissions", accepted), Problem.class);
+    }
+
+    /**
+     * Moves the problem counter only when the submission's accepted_counted flag flips,
+     * so it follows the current verdict in both directions.
+     */
+    private void countProblemAccepted(String submissionId, String problemId, boolean accepted) {
+        Criteria flip = Criteria.where("_id").is(submissionId);
+        if (accepted) {
+            flip.and("acceptedCounted").ne(true);
+        } else {
+            flip.and("acceptedCounted").is(true);
+        }
+        if (mongoTemplate.updateFirst(Query.query(flip), new Update().set("acceptedCounted", accepted), Submission.class)
+                .getModifiedCount() > 0) {
+            mongoTemplate.updateFirst(byId(problemId), new Update().inc("accepted_submissions", accepted ? 1 : -1),
+                    Problem.class);
+        }
+    }
+
+    /**
+     * Counts a submission in a window once; inserting its marker is what claims the count.
+     */
+    private void countSubmission(String markerId, String entryId, String userId, String period, String bucket) {
+        try {
+            mongoTemplate.insert(new Document("_id", markerId).append("accepted", false), MARKERS);
+        } catch (DuplicateKeyException e) {
+            // Already counted in this window
+            return;
+        }
+
+        Update count = new Update()
+                .setOnInsert("userId", userId)
+                .setOnInsert("period", period)
+                .setOnInsert("bucket", bucket)
+                .inc("total_submissions", 1);
+        mongoTemplate.upsert(byId(entryId), count, LeaderboardEntry.class);
+    }
+
+    /**
+     * Keeps accepted_submissions in line with the submission's current verdict, in both directions;
+     * the entry only moves when the marker's accepted flag flips.
+     */
+    private void countAccepted(String markerId, String entryId, boolean accepted) {
+        Query flip = Query.query(Criteria.where("_id").is(markerId).and("accepted").is(!accepted));
+        if (mongoTemplate.updateFirst(flip, new Update().set("accepted", accepted), MARKERS).getModifiedCount() > 0) {
+            mongoTemplate.updateFirst(byId(entryId), new Update().inc("accepted_submissions", accepted ? 1 : -1),
+                    LeaderboardEntry.class);
+        }
+    }
+
+    /**
+     * Adds the problem to the user's solved set in each window. The conditional update
+     * only matches when the problem is not solved yet, which doubles as first-solve detection.
+     */
+    public void recordSolve(String userId, Problem problem, Map<String, String> windows) {
+        String difficultyField = difficultyField(problem.getDifficulty());
+        int weight = weight(problem.getDifficulty());
+
+        windows.forEach((period, bucket) -> {
+            Query notYetSolved = Query.query(Criteria.where("_id").is(entryId(userId, period, bucket))
+                    .and("solved").ne(problem.getId()));
+            Update solve = new Update()
+                    .addToSet("solved", problem.getId())
+                    .inc("problems_solved", 1)
+                    .inc("score", weight);
+            if (difficultyField != null) {
+                solve.inc(difficultyField, 1);
+            }
+
+            if (mongoTemplate.updateFirst(notYetSolved, solve, LeaderboardEntry.class).getModifiedCount() > 0
+                    && Constants.PERIOD_ALL_TIME.equals(period)) {
+                LOGGER.info("First solve of problem {} by user {}", problem.getId(), userId);
+            }
+        });
+    }
+
+    /**
+     * Leaderboard windows (period -> bucket) a submission made at the given time belongs to.
+     * Times are mapped from Mongo in the JVM zone; buckets are always cut in UTC, like the API's.
+     */
+    public Map<String, String> windows(LocalDateTime localTime) {
+        ZonedDateTime time = localTime.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC);
+        Map<String, String> windows = new LinkedHashMap<>();
+        windows.put(Constants.PERIOD_ALL_TIME, "all");
+        windows.put(Constants.PERIOD_WEEKLY, String.format("%d-W%02d",
+                time.get(IsoFields.WEEK_BASED_YEAR), time.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR)));
+        windows.put(Constants.PERIOD_MONTHLY, String.format("%d-%02d", time.getYear(), time.getMonthValue()));
+        return windows;
+    }
+
+    /**
+     * Bounds of a window as JVM-zone times for querying createdAt; {@code null} for all-time.
+     */
+    private static LocalDateTime[] windowRange(String period, LocalDateTime localTime) {
+        ZonedDateTime day = localTime.atZone(ZoneId.systemDefault())
+                .withZoneSameInstant(ZoneOffset.UTC)
+                .truncatedTo(ChronoUnit.DAYS);
+        ZonedDateTime from;
+        ZonedDateTime to;
+        if (Constants.PERIOD_WEEKLY.equals(period)) {
+            from = day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            to = from.plusWeeks(1);
+        } else if (Constants.PERIOD_MONTHLY.equals(period)) {
+            from = day.withDayOfMonth(1);
+            to = from.plusMonths(1);
+        } else {
+            return null;
+        }
+        return new LocalDateTime[] {
+                from.withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime(),
+                to.withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime()
+        };
+    }
+
+    private static Query byId(String id) {
+        return Query.query(Criteria.where("_id").is(id));
+    }
+
+    private static String entryId(String userId, String period, String bucket) {
+        return userId + ":" + period + ":" + bucket;
+    }
+
+    private static String difficultyField(String difficulty) {
+        if (difficulty == null) return null;
+        return switch (difficulty) {
+            case Constants.DIFFICULTY_EASY -> "easy";
+            case Constants.DIFFICULTY_MEDIUM -> "medium";
+            case Constants.DIFFICULTY_HARD -> "hard";
+            default -> null;
+        };
+    }
+
+    private static int weight(String difficulty) {
+        if (difficulty == null) return 0;
+        return switch (difficulty) {
+            case Constants.DIFFICULTY_EASY -> 1;
+            case Constants.DIFFICULTY_MEDIUM -> 3;
+            case Constants.DIFFICULTY_HARD -> 5;
+            default -> 0;
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package com.judge.workerservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.judge.workerservice.domain.SubmissionDetails;
+import com.judge.workerservice.domain.TestCaseResult;
+import com.judge.workerservice.repository.SubmissionDetailsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores per-test-case results as a compressed blob in a side collection.
+ * The API loads it only when someone opens a single submission.
+ */
+@Service
+public class SubmissionDetailsService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubmissionDetailsService.class);
+
+    private final SubmissionDetailsRepository detailsRepository;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public SubmissionDetailsService(SubmissionDetailsRepository detailsRepository, ObjectMapper objectMapper) {
+        this.detailsRepository = detailsRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public void store(String submissionId, List<TestCaseResult> results) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+                objectMapper.writeValue(gzip, results);
+            }
+
+            detailsRepository.save(new SubmissionDetails(
+                    submissionId,
+                    SubmissionDetails.ENCODING_GZIP_JSON,
+                    results.size(),
+                    buffer.toByteArray(),
+                    LocalDateTime.now()
+            ));
+        } catch (Exception e) {
+            // Details are informational only, the verdict on the submission is what counts
+            LOGGER.warn("Failed to store test details for submission {}: {}", submissionId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.judge.workerservice.service;
+
+import com.judge.workerservice.domain.TestCase;
+import com.judge.workerservice.domain.TestCaseStats;
+import com.mongodb.client.result.UpdateResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders hidden test cases so the most discriminating and cheapest cases run first,
+ * based on failure and runtime statistics collected from previous judgements.
+ */
+@Service
+public class TestOrderingService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestOrderingService.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${judge.ordering.enabled:true}")
+    private boolean enabled;
+
+    @Value("${judge.ordering.min.samples:20}")
+    private long minSamples;
+
+    @Autowired
+    public TestOrderingService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Digest of the test cases' content and order; statistics are kept per test set version.
+     */
+    public static String testSetKey(List<TestCase> testCases) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (TestCase testCase : testCases) {
+                for (String part : new String[] {testCase.getInput(), testCase.getOutput()}) {
+                    byte[] bytes = String.valueOf(part).getBytes(StandardCharsets.UTF_8);
+                    digest.update((bytes.length + ":").getBytes(StandardCharsets.UTF_8));
+                    digest.update(bytes);
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the original (0-based) test case indices in the order they should be executed.
+     * Falls back to stored order until enough submissions have been observed on this test set.
+     */
+    public List<Integer> executionOrder(String problemId, String testSet, int testCount) {
+        List<Integer> order = new ArrayList<>(testCount);
+        for (int i = 0; i < testCount; i++) {
+            order.add(i);
+        }
+
+        if (!enabled) {
+            return order;
+        }
+
+        TestCaseStats stats;
+        try {
+            stats = mongoTemplate.findById(statsId(problemId, testSet), TestCaseStats.class);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to load test case stats for problem {}: {}", problemId, e.getMessage());
+            return order;
+        }
+
+        if (stats == null || stats.getTestCount() == null || stats.getTestCount() != testCount
+                || stats.getJudgedSubmissions() == null || stats.getJudgedSubmissions() < minSamples) {
+            return order;
+        }
+
+        double[] scores = new double[testCount];
+        for (int i = 0; i < testCount; i++) {
+            scores[i] = score(stats, i);
+        }
+
+        // Stable sort keeps the stored order for equally scored cases
+        order.sort(Comparator.comparingDouble((Integer i) -> scores[i]).reversed());
+        return order;
+    }
+
+    /**
+     * Records the outcome of one judgement. {@code failedIndex} is the original index of the
+     * failing test case, or -1 if every executed case passed.
+     */
+    public void recordOutcome(String problemId, String testSet, int testCount,
+                              Map<Integer, Long> executionTimes, int failedIndex) {
+        if (!enabled || executionTimes.isEmpty()) {
+            return;
+        }
+
+        String id = statsId(problemId, testSet);
+        try {
+            Update update = new Update()
+                    .setOnInsert("problem_id", problemId)
+                    .setOnInsert("test_count", testCount)
+                    .inc("judged_submissions", 1);
+            executionTimes.forEach((index, timeMs) -> {
+                update.inc("runs." + index, 1);
+                update.inc("total_time_ms." + index, timeMs != null ? timeMs : 0L);
+            });
+            if (failedIndex >= 0) {
+                update.inc("failures." + failedIndex, 1);
+            }
+
+            UpdateResult result = mongoTemplate.upsert(Query.query(Criteria.where("_id").is(id)), update, TestCaseStats.class);
+
+            // First outcome on a new test set: statistics of earlier versions are dead weight
+            if (result.getUpsertedId() != null) {
+                mongoTemplate.remove(
+                        Query.query(Criteria.where("problem_id").is(problemId).and("_id").ne(id)),
+                        TestCaseStats.class);
+            }
+        } catch (Exception e) {
+            // Statistics are an optimization only, never fail a judgement because of them
+            LOGGER.warn("Failed to record test case stats for problem {}: {}", problemId, e.getMessage());
+        }
+    }
+
+    private static String statsId(String problemId, String testSet) {
+        return problemId + ":" + testSet;
+    }
+
+    /**
+     * Failure probability per millisecond of runtime, with Laplace smoothing so
+     * never-executed cases are still tried early enough to gather data.
+     */
+    private double score(TestCaseStats stats, int index) {
+        String key = String.valueOf(index);
+        long runs = stats.getRuns().getOrDefault(key, 0L);
+        long failures = stats.getFailures().getOrDefault(key, 0L);
+        long totalTime = stats.getTotalTimeMs().getOrDefault(key, 0L);
+
+        double failureRate = (failures + 1.0) / (runs + 2.0);
+        double averageTime = runs > 0 ? (double) totalTime / runs : 0.0;
+        return failureRate / (averageTime + 1.0);
+    }
+}
@@ -13,12 +13,30 @@ public class Constants {
     public static final String STATUS_COMPILATION_ERROR = "Compilation Error";
     public static final String STATUS_INTERNAL_ERROR = "Internal Error";
     
+    // Difficulties
+    public static final String DIFFICULTY_EASY = "Easy";
+    public static final String DIFFICULTY_MEDIUM = "Medium";
+    public static final String DIFFICULTY_HARD = "Hard";
+    
+    // Leaderboard periods
+    public static final String PERIOD_ALL_TIME = "all-time";
+    public static final String PERIOD_WEEKLY = "weekly";
+    public static final String PERIOD_MONTHLY = "monthly";
+    
     // Docker result codes
     public static final String DOCKER_SUCCESS = "SUCCESS";
     public static final String DOCKER_COMPILATION_ERROR = "COMPILATION_ERROR";
     public static final String DOCKER_RUNTIME_ERROR = "RUNTIME_ERROR";
     public static final String DOCKER_TIME_LIMIT = "TIME_LIMIT_EXCEEDED";
+    public static final String DOCKER_MEMORY_LIMIT = "MEMORY_LIMIT_EXCEEDED";
     public static final String DOCKER_INTERNAL_ERROR = "INTERNAL_ERROR";
     
+    // Docker labels
+    public static final String LABEL_SANDBOX = "judge.sandbox";
+    public static final String LABEL_WORKER = "judge.worker";
+    public static final String LABEL_SUBMISSION = "judge.submission";
+    public static final String LABEL_ROLE = "judge.role";
+    public static final String ROLE_CHECKER = "checker";
+    
     private Constants() {}
 }
@@ -0,0 +1,186 @@
+package com.judge.workerservice.service;
+
+import com.judge.workerservice.domain.WorkerHeartbeat;
+import com.judge.workerservice.dto.AutoscalingRecommendation;
+import com.judge.workerservice.repository.WorkerHeartbeatRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AutoscalingAdvisorTests {
+
+    /**
+     * Stands in for the broker: queue depths are whatever the test sets.
+     */
+    static class InMemoryBroker implements QueueDepthProbe {
+
+        final Map<String, Long> queues = new ConcurrentHashMap<>();
+        volatile boolean down;
+
+        @Override
+        public long depth(String queue) {
+            if (down) {
+                throw new IllegalStateException("connection refused");
+            }
+            return queues.getOrDefault(queue, 0L);
+        }
+    }
+
+    /**
+     * Lets a test pretend the worker has been up for a full service time window.
+     */
+    static class ManualClock extends Clock {
+
+        volatile long millis;
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+
+    private final InMemoryBroker broker = new InMemoryBroker();
+    private final ManualClock clock = new ManualClock();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ServiceTimeTracker serviceTimeTracker;
+    private WorkerHeartbeatRepository heartbeatRepository;
+    private AutoscalingAdvisor advisor;
+
+    @BeforeEach
+    void setUp() {
+        CpuSlotScheduler slotScheduler = mock(CpuSlotScheduler.class);
+        when(slotScheduler.totalSlots()).thenReturn(4);
+        heartbeatRepository = mock(WorkerHeartbeatRepository.class);
+        when(heartbeatRepository.findByLastSeenAfter(any())).thenReturn(List.of(
+                new WorkerHeartbeat("worker-a", "host-a", LocalDateTime.now(), 0)));
+
+        serviceTimeTracker = new ServiceTimeTracker(clock);
+        ReflectionTestUtils.setField(serviceTimeTracker, "windowSeconds", 300L);
+
+        advisor = new AutoscalingAdvisor(broker, serviceTimeTracker, slotScheduler, heartbeatRepository,
+                new InFlightDeliveries(), meterRegistry);
+        ReflectionTestUtils.setField(advisor, "submissionQueue", "submission_queue");
+        ReflectionTestUtils.setField(advisor, "testQueue", "test_queue");
+        ReflectionTestUtils.setField(advisor, "targetWaitMs", 10_000L);
+        ReflectionTestUtils.setField(advisor, "targetUtilization", 0.75);
+        ReflectionTestUtils.setField(advisor, "defaultServiceTimeMs", 2_000L);
+        ReflectionTestUtils.setField(advisor, "minWorkers", 1);
+        ReflectionTestUtils.setField(advisor, "maxWorkers", 20);
+        ReflectionTestUtils.setField(advisor, "heartbeatTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(advisor, "batchSize", 8);
+        ReflectionTestUtils.setField(advisor, "maxConsumers", 10);
+        ReflectionTestUtils.setField(advisor, "maxConcurrent", 10);
+    }
+
+    @Test
+    void idleQueuesRecommendMinimum() {
+        AutoscalingRecommendation recommendation = advisor.refresh();
+
+        assertEquals(1, recommendation.recommendedWorkers());
+        assertEquals(0L, recommendation.queueDepth().get("submission_queue"));
+        assertNull(recommendation.error());
+    }
+
+    @Test
+    void backlogDrainsWithinTargetWait() {
+        // 120 jobs x 2s on 4 slots per worker, to be started within 10s
+        broker.queues.put("submission_queue", 100L);
+        broker.queues.put("test_queue", 20L);
+
+        AutoscalingRecommendation recommendation = advisor.refresh();
+
+        assertEquals(6, recommendation.recommendedWorkers());
+        assertEquals(6.0, meterRegistry.get("judge.autoscaling.recommended.workers").gauge().value());
+    }
+
+    @Test
+    void unackedMessagesOfLiveWorkersCountAsBacklog() {
+        // Prefetched and running jobs are gone from the ready count but still have to be served
+        when(heartbeatRepository.findByLastSeenAfter(any())).thenReturn(List.of(
+                new WorkerHeartbeat("worker-a", "host-a", LocalDateTime.now(), 8),
+                new WorkerHeartbeat("worker-b", "host-b", LocalDateTime.now(), 12)));
+        broker.queues.put("submission_queue", 100L);
+
+        AutoscalingRecommendation recommendation = advisor.refresh();
+
+        assertEquals(20L, recommendation.inFlight());
+        assertEquals(6, recommendation.recommendedWorkers());
+    }
+
+    @Test
+    void concurrencyBelowSlotCountLimitsCapacity() {
+        // Only 2 of the 4 slots are ever busy, so 120 jobs x 2s need 12 workers to start within 10s
+        ReflectionTestUtils.setField(advisor, "maxConcurrent", 2);
+        broker.queues.put("submission_queue", 120L);
+
+        AutoscalingRecommendation recommendation = advisor.refresh();
+
+        assertEquals(2, recommendation.slotsPerWorker());
+        assertEquals(12, recommendation.recommendedWorkers());
+    }
+
+    @Test
+    void recentServiceTimeReplacesDefault() {
+        clock.millis += 300_000;
+        for (int i = 0; i < 10; i++) {
+            serviceTimeTracker.record("java", 4_000);
+        }
+        broker.queues.put("submission_queue", 100L);
+
+        AutoscalingRecommendation recommendation = advisor.refresh();
+
+        assertEquals(4_000.0, recommendation.meanServiceTimeMs());
+        assertEquals(10, recommendation.recommendedWorkers());
+    }
+
+    @Test
+    void brokerOutageKeepsPreviousRecommendation() {
+        broker.queues.put("submission_queue", 100L);
+        assertEquals(5, advisor.refresh().recommendedWorkers());
+
+        broker.down = true;
+        AutoscalingRecommendation recommendation = advisor.refresh();
+
+        assertEquals(5, recommendation.recommendedWorkers());
+        assertNotNull(recommendation.error());
+    }
+
+    @Test
+    void arrivalRateKeepsWorkersBelowTargetUtilization() {
+        // 3 jobs/s x 2s = 6 busy slots, 8 at 75% utilization, on 4 slots per worker
+        assertEquals(2, AutoscalingAdvisor.recommend(0, 3.0, 2.0, 4, 10.0, 0.75, 1, 20));
+        assertEquals(20, AutoscalingAdvisor.recommend(10_000, 3.0, 2.0, 4, 10.0, 0.75, 1, 20));
+    }
+}
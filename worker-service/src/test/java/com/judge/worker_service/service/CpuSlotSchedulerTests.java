@@ -0,0 +1,89 @@
+package com.judge.workerservice.service;
+
+import com.judge.workerservice.service.CpuSlotScheduler.CpuSlot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CpuSlotSchedulerTests {
+
+    @TempDir
+    Path sysfs;
+
+    /**
+     * Two sockets, each one NUMA node with two cores of two SMT threads; cpu N and N+4 are siblings.
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        write("cpu/online", "0-7\n");
+        for (int cpu = 0; cpu < 8; cpu++) {
+            int core = cpu % 4;
+            write("cpu/cpu" + cpu + "/topology/physical_package_id", (core / 2) + "\n");
+            write("cpu/cpu" + cpu + "/topology/core_id", core + "\n");
+        }
+        write("node/node0/cpulist", "0-1,4-5\n");
+        write("node/node1/cpulist", "2-3,6-7\n");
+    }
+
+    @Test
+    void oneSlotPerPhysicalCoreSkippingReservedCores() throws IOException {
+        List<CpuSlot> slots = CpuSlotScheduler.discover(sysfs, Set.of(0), false);
+
+        assertEquals(List.of("1", "2", "3"), slots.stream().map(CpuSlot::cpus).toList());
+        assertEquals(List.of("0", "1", "1"), slots.stream().map(CpuSlot::mems).toList());
+        assertEquals(List.of(0, 1, 2), slots.stream().map(CpuSlot::index).toList());
+        assertEquals(Set.of(1, 5), slots.get(0).coreCpus());
+    }
+
+    @Test
+    void sharedSiblingsBecomeSlotsOrderedByNode() throws IOException {
+        List<CpuSlot> slots = CpuSlotScheduler.discover(sysfs, Set.of(0), true);
+
+        assertEquals(List.of("1", "5", "2", "3", "6", "7"), slots.stream().map(CpuSlot::cpus).toList());
+    }
+
+    @Test
+    void idleSiblingsOfSlotCoresAreNotShared() throws IOException {
+        List<CpuSlot> slots = CpuSlotScheduler.discover(sysfs, Set.of(0), false);
+
+        assertEquals(Set.of(0, 4), CpuSlotScheduler.sharedCpus(CpuSlotScheduler.parseCpuList("0-7"), slots));
+    }
+
+    @Test
+    void missingNumaTopologyLeavesMemsUnbound() throws IOException {
+        try (Stream<Path> paths = Files.walk(sysfs.resolve("node"))) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+
+        List<CpuSlot> slots = CpuSlotScheduler.discover(sysfs, Set.of(0), false);
+
+        assertEquals(3, slots.size());
+        assertNull(slots.get(0).mems());
+    }
+
+    @Test
+    void parsesKernelCpuLists() {
+        assertEquals(Set.of(0, 1, 2, 3, 8, 10, 11), CpuSlotScheduler.parseCpuList("0-3,8,10-11\n"));
+        assertEquals(Set.of(5), CpuSlotScheduler.parseCpuList(" 5 "));
+        assertTrue(CpuSlotScheduler.parseCpuList("").isEmpty());
+        assertTrue(CpuSlotScheduler.parseCpuList(null).isEmpty());
+    }
+
+    private void write(String relative, String content) throws IOException {
+        Path file = sysfs.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}